@@ -0,0 +1,101 @@
+package uk.ac.soton.comp1206.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of finding full lines on square boards of increasing size: the scalar and vector scans of the whole
+ * board, a scan cell by cell, and the check made after each move, which looks only at the lines under the piece.
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class LineScanBenchmark {
+
+    @Param({"8", "32", "128", "512", "1024"})
+    public int size;
+
+    private Grid grid;
+    private long[] chunks;
+    private int chunksX;
+    private long[] rowBits;
+    private long[] columnBits;
+
+    private final LineScanner scalar = new ScalarLineScanner();
+    private final LineScanner vector = new VectorLineScanner();
+    private final GamePiece piece = GamePiece.createPiece(0);
+
+    /**
+     * Fill the board almost completely, with one full row and one full column, so scans cannot stop early
+     */
+    @Setup
+    public void setup() {
+        grid = new Grid(size, size);
+        var random = new Random(size);
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                if(x == size / 2 || y == size / 2 || random.nextInt(size) != 0) grid.set(x, y, 1);
+            }
+        }
+        chunksX = (size + Grid.CHUNK - 1) / Grid.CHUNK;
+        chunks = new long[chunksX * chunksX];
+        var snapshot = grid.snapshot();
+        for(int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = snapshot.getChunk(chunk % chunksX, chunk / chunksX);
+        }
+        rowBits = new long[(size + 63) / 64];
+        columnBits = new long[(size + 63) / 64];
+    }
+
+    @Benchmark
+    public long[] scalarScan() {
+        scalar.fullRows(chunks, chunksX, size, size, rowBits);
+        scalar.fullColumns(chunks, chunksX, size, size, columnBits);
+        return columnBits;
+    }
+
+    @Benchmark
+    public long[] vectorScan() {
+        vector.fullRows(chunks, chunksX, size, size, rowBits);
+        vector.fullColumns(chunks, chunksX, size, size, columnBits);
+        return columnBits;
+    }
+
+    @Benchmark
+    public int cellByCellScan() {
+        int full = 0;
+        for(int y = 0; y < size; y++) {
+            int x = 0;
+            while(x < size && grid.isOccupied(x, y)) x++;
+            if(x == size) full++;
+        }
+        for(int x = 0; x < size; x++) {
+            int y = 0;
+            while(y < size && grid.isOccupied(x, y)) y++;
+            if(y == size) full++;
+        }
+        return full;
+    }
+
+    @Benchmark
+    public int perMoveCheck() {
+        return grid.fullLines(piece, size / 2, size / 2);
+    }
+}
@@ -4,7 +4,9 @@ module uk.ac.soton.comp1206 {
     requires javafx.fxml;
     requires javafx.media;
     requires org.apache.logging.log4j;
+    requires org.apache.logging.log4j.core;
     requires nv.websocket.client;
+    requires static jdk.incubator.vector;
     opens uk.ac.soton.comp1206.ui to javafx.fxml;
     exports uk.ac.soton.comp1206;
     exports uk.ac.soton.comp1206.ui;
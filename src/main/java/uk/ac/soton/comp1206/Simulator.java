@@ -0,0 +1,215 @@
+package uk.ac.soton.comp1206;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GreedyPlacementPolicy;
+import uk.ac.soton.comp1206.game.MoveRecording;
+import uk.ac.soton.comp1206.game.PlacementPolicy;
+import uk.ac.soton.comp1206.game.PlacementSolver;
+import uk.ac.soton.comp1206.game.RandomPlacementPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * This Simulator class plays complete games of TetrECS headlessly, spread over every core, and reports how the games
+ * went. It does not start JavaFX.
+ *
+ * Every game is dealt pieces from its own seed, so a run is repeatable, and its moves are chosen by a PlacementPolicy.
+ * When the policy has no move the timer is treated as having run out. The solver searches to a fixed depth unless given
+ * a time budget in milliseconds, since a budgeted search depends on how fast the machine is and so is not repeatable.
+ * Each worker thread keeps one solver for all of its games.
+ *
+ * Usage: Simulator [--games N] [--threads N] [--seed N] [--policy random|greedy|solver] [--size N] [--max-pieces N]
+ *                  [--depth N] [--budget MS]
+ *
+ * A single recorded game, as logged at the end of every challenge, can be played again instead with
+ * Simulator --replay RECORDING
+ */
+public class Simulator {
+
+    private static final Logger logger = LogManager.getLogger(Simulator.class);
+
+    /**
+     * Games handed to a worker at a time
+     */
+    private static final int BATCH = 256;
+
+    /**
+     * Run the simulation, passing through the commandline arguments
+     * @param args commandline arguments
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        if(args.length == 2 && args[0].equals("--replay")) {
+            replay(MoveRecording.parse(args[1]));
+            return;
+        }
+
+        int games = 10000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        String policyName = "greedy";
+        int size = 5;
+        int maxPieces = 100000;
+        int depth = 2;
+        long budget = 0;
+
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option: " + args[i]);
+            }
+            switch (args[i]) {
+                case "--games" -> games = Integer.parseInt(args[i + 1]);
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--policy" -> policyName = args[i + 1];
+                case "--size" -> size = Integer.parseInt(args[i + 1]);
+                case "--max-pieces" -> maxPieces = Integer.parseInt(args[i + 1]);
+                case "--depth" -> depth = Integer.parseInt(args[i + 1]);
+                case "--budget" -> budget = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        int solverDepth = depth;
+        long solverBudget = budget;
+        LongFunction<PlacementPolicy> policies = switch (policyName) {
+            case "random" -> RandomPlacementPolicy::new;
+            case "greedy" -> gameSeed -> new GreedyPlacementPolicy();
+            case "solver" -> {
+                var solvers = ThreadLocal.withInitial(() -> solverBudget > 0
+                        ? new PlacementSolver(PlacementSolver.DEFAULT_HEURISTIC, solverDepth, solverBudget)
+                        : new PlacementSolver(PlacementSolver.DEFAULT_HEURISTIC, solverDepth));
+                yield gameSeed -> solvers.get();
+            }
+            default -> throw new IllegalArgumentException("Unknown policy: " + policyName);
+        };
+
+        //Per-move logging from the engine would swamp the run
+        Configurator.setLevel("uk.ac.soton.comp1206.game", Level.WARN);
+
+        logger.info("Simulating {} games on {} threads with the {} policy", games, threads, policyName);
+        var results = new Results(games);
+        long started = System.nanoTime();
+
+        var pool = Executors.newFixedThreadPool(threads);
+        try {
+            var batches = new ArrayList<Future<?>>();
+            for(int first = 0; first < games; first += BATCH) {
+                int from = first;
+                int to = Math.min(games, first + BATCH);
+                int boardSize = size;
+                int limit = maxPieces;
+                long baseSeed = seed;
+                batches.add(pool.submit(() -> {
+                    for(int game = from; game < to; game++) {
+                        long gameSeed = mix(baseSeed, game);
+                        play(game, new Game(boardSize, boardSize, gameSeed), policies.apply(gameSeed), limit, results);
+                    }
+                }));
+            }
+            for(var batch : batches) {
+                batch.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("%d games in %.2fs (%.0f games/s)%n", games, seconds, games / seconds);
+        results.print();
+    }
+
+    /**
+     * Play a recorded game again and report how it ended
+     * @param recording recording to replay
+     */
+    private static void replay(MoveRecording recording) {
+        Configurator.setLevel("uk.ac.soton.comp1206.game", Level.WARN);
+
+        long started = System.nanoTime();
+        var game = recording.replay();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("%d commands (%d bytes) replayed in %.3fs%n", recording.size(), recording.byteSize(), seconds);
+        System.out.printf("score %d, level %d, lines cleared %d, pieces played %d, lives %d%s%n", game.getScore(),
+                game.getLevel(), game.getLinesCleared(), game.getPiecesPlayed(), game.getLife(),
+                game.isOver() ? ", game over" : "");
+    }
+
+    /**
+     * Play one game to the end and record its result
+     * @param index index of the game in the results
+     * @param game game to play
+     * @param policy policy choosing the moves
+     * @param maxPieces pieces after which the game is stopped
+     * @param results results to record into
+     */
+    private static void play(int index, Game game, PlacementPolicy policy, int maxPieces, Results results) {
+        game.initialiseGame();
+        while(!game.isOver() && game.getPiecesPlayed() < maxPieces) {
+            var placement = policy.choose(game);
+            if(placement == null || !game.play(placement)) {
+                game.gameLoop();
+            }
+        }
+        results.score[index] = game.getScore();
+        results.level[index] = game.getLevel();
+        results.lines[index] = game.getLinesCleared();
+        results.pieces[index] = game.getPiecesPlayed();
+    }
+
+    /**
+     * Derive the seed of a single game from the seed of the run
+     */
+    private static long mix(long seed, int game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The results of every game in a run. Each game writes only its own index, so no locking is needed.
+     */
+    private static class Results {
+        final int[] score;
+        final int[] level;
+        final int[] lines;
+        final int[] pieces;
+
+        Results(int games) {
+            score = new int[games];
+            level = new int[games];
+            lines = new int[games];
+            pieces = new int[games];
+        }
+
+        void print() {
+            System.out.printf("%-14s %10s %10s %10s %10s %10s %10s%n", "", "min", "mean", "p50", "p90", "p99", "max");
+            print("score", score);
+            print("level", level);
+            print("lines cleared", lines);
+            print("pieces played", pieces);
+        }
+
+        private void print(String name, int[] values) {
+            var sorted = values.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-14s %10d %10.1f %10d %10d %10d %10d%n", name, sorted[0],
+                    Arrays.stream(sorted).average().orElse(0), percentile(sorted, 0.5), percentile(sorted, 0.9),
+                    percentile(sorted, 0.99), sorted[sorted.length - 1]);
+        }
+
+        private int percentile(int[] sorted, double fraction) {
+            return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+        }
+    }
+}
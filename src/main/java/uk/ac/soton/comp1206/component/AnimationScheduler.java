@@ -0,0 +1,284 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An AnimationScheduler drives every animation of a scene from a single AnimationTimer, so a clear of hundreds of
+ * cells costs one timer rather than one per cell.
+ *
+ * Each pulse it first runs the frame listeners that asked for a frame, such as a CanvasBoard repainting its dirty
+ * cells, and then advances every running cell effect and asks its target to paint it. The state of the effects is kept
+ * in parallel primitive arrays that are reused as effects end, so starting an effect does not allocate. Effects run by
+ * time rather than by frames: each ends on the first pulse after its duration has passed, having been painted fully
+ * complete, whatever the frame rate. The timer stops as soon as nothing is left to do.
+ *
+ * At most a fixed number of effects run at once. An effect started when the scheduler is full is skipped and ends
+ * straight away, so the board is always left as it should be.
+ */
+public class AnimationScheduler {
+
+    /**
+     * The effects that can be run on a cell, with how long each lasts
+     */
+    public enum Effect {
+        /**
+         * A white flash fading away, for an emptied cell
+         */
+        FADE(333),
+
+        /**
+         * A white flash rising and falling over the cell
+         */
+        FLASH(250),
+
+        /**
+         * The block growing to its full size, for a filled cell
+         */
+        POP(150);
+
+        private final long duration;
+
+        Effect(long duration) {
+            this.duration = duration;
+        }
+
+        /**
+         * Get how long this effect lasts
+         * @return duration in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+
+    /**
+     * Something that cell effects are shown on, such as a board
+     */
+    public interface Target {
+
+        /**
+         * Paint one frame of an effect on a cell
+         * @param effect the effect
+         * @param x column of the cell
+         * @param y row of the cell
+         * @param progress how far through the effect, from 0 to 1
+         */
+        public void paintEffect(Effect effect, int x, int y, double progress);
+
+        /**
+         * Restore a cell once an effect on it has ended
+         * @param effect the effect
+         * @param x column of the cell
+         * @param y row of the cell
+         */
+        public void effectEnded(Effect effect, int x, int y);
+    }
+
+    /**
+     * The number of effects a scene runs at once unless told otherwise
+     */
+    public static final int DEFAULT_MAX_EFFECTS = 4096;
+
+    private static final Effect[] EFFECTS = Effect.values();
+
+    private final int maxEffects;
+
+    /**
+     * The running effects: kind, cell packed as (x << 16 | y), start time or -1 until the first pulse, duration in
+     * nanoseconds and target
+     */
+    private int[] kinds = new int[64];
+    private int[] cells = new int[64];
+    private long[] starts = new long[64];
+    private long[] durations = new long[64];
+    private Target[] targets = new Target[64];
+    private int count = 0;
+
+    /**
+     * Effects that ended in the current pulse, whose targets are told once the pulse has stepped every effect
+     */
+    private int[] endedKinds = new int[64];
+    private int[] endedCells = new int[64];
+    private Target[] endedTargets = new Target[64];
+
+    private final List<Runnable> frameListeners = new ArrayList<>();
+    private boolean frameRequested = false;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            pulse(now);
+        }
+    };
+    private boolean running = false;
+
+    /**
+     * Create a scheduler running up to {@link #DEFAULT_MAX_EFFECTS} effects at once
+     */
+    public AnimationScheduler() {
+        this(DEFAULT_MAX_EFFECTS);
+    }
+
+    /**
+     * Create a scheduler
+     * @param maxEffects the most effects to run at once
+     */
+    public AnimationScheduler(int maxEffects) {
+        if(maxEffects < 1) throw new IllegalArgumentException("Must allow at least one effect: " + maxEffects);
+        this.maxEffects = maxEffects;
+    }
+
+    /**
+     * Start an effect on a cell, from the next pulse
+     * @param target what the cell belongs to
+     * @param effect effect to run
+     * @param x column of the cell
+     * @param y row of the cell
+     */
+    public void start(Target target, Effect effect, int x, int y) {
+        if(count == maxEffects) {
+            target.effectEnded(effect, x, y);
+            return;
+        }
+        if(count == kinds.length) grow(Math.min(maxEffects, count * 2));
+
+        kinds[count] = effect.ordinal();
+        cells[count] = x << 16 | y;
+        starts[count] = -1;
+        durations[count] = effect.getDuration() * 1_000_000L;
+        targets[count] = target;
+        count++;
+        ensureRunning();
+    }
+
+    /**
+     * Add a listener to run on the pulses it asks for with {@link #requestFrame}, before effects are painted
+     * @param listener listener to add
+     */
+    public void addFrameListener(Runnable listener) {
+        frameListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener added with {@link #addFrameListener}
+     * @param listener listener to remove
+     */
+    public void removeFrameListener(Runnable listener) {
+        frameListeners.remove(listener);
+    }
+
+    /**
+     * Run the frame listeners on the next pulse
+     */
+    public void requestFrame() {
+        frameRequested = true;
+        ensureRunning();
+    }
+
+    /**
+     * End every running effect now, restoring the cells, and stop the timer
+     */
+    public void finishAll() {
+        int ended = count;
+        for(int i = 0; i < ended; i++) {
+            addEnded(i, i);
+        }
+        count = 0;
+        Arrays.fill(targets, null);
+        running = false;
+        timer.stop();
+
+        notifyEnded(ended);
+    }
+
+    /**
+     * Get the number of effects running
+     * @return running effects
+     */
+    public int getActiveCount() {
+        return count;
+    }
+
+    /**
+     * Run the frame listeners if asked, step every effect and stop once idle
+     */
+    private void pulse(long now) {
+        if(frameRequested) {
+            frameRequested = false;
+            for(Runnable listener : frameListeners) {
+                listener.run();
+            }
+        }
+
+        //Step each effect, keeping those still running in order at the front of the arrays
+        int kept = 0;
+        int ended = 0;
+        for(int i = 0; i < count; i++) {
+            if(starts[i] < 0) starts[i] = now;
+            double progress = Math.min(1, (now - starts[i]) / (double) durations[i]);
+            targets[i].paintEffect(EFFECTS[kinds[i]], cells[i] >>> 16, cells[i] & 0xFFFF, progress);
+
+            if(progress >= 1) {
+                addEnded(ended++, i);
+            } else {
+                kinds[kept] = kinds[i];
+                cells[kept] = cells[i];
+                starts[kept] = starts[i];
+                durations[kept] = durations[i];
+                targets[kept] = targets[i];
+                kept++;
+            }
+        }
+        Arrays.fill(targets, kept, count, null);
+        count = kept;
+        notifyEnded(ended);
+
+        if(count == 0 && !frameRequested) {
+            running = false;
+            timer.stop();
+        }
+    }
+
+    /**
+     * Hold an ended effect until the targets are told
+     */
+    private void addEnded(int slot, int effect) {
+        if(slot == endedKinds.length) {
+            endedKinds = Arrays.copyOf(endedKinds, slot * 2);
+            endedCells = Arrays.copyOf(endedCells, slot * 2);
+            endedTargets = Arrays.copyOf(endedTargets, slot * 2);
+        }
+        endedKinds[slot] = kinds[effect];
+        endedCells[slot] = cells[effect];
+        endedTargets[slot] = targets[effect];
+    }
+
+    /**
+     * Tell the targets of the ended effects, which may start new effects in turn
+     */
+    private void notifyEnded(int ended) {
+        for(int i = 0; i < ended; i++) {
+            var target = endedTargets[i];
+            endedTargets[i] = null;
+            target.effectEnded(EFFECTS[endedKinds[i]], endedCells[i] >>> 16, endedCells[i] & 0xFFFF);
+        }
+    }
+
+    private void grow(int size) {
+        kinds = Arrays.copyOf(kinds, size);
+        cells = Arrays.copyOf(cells, size);
+        starts = Arrays.copyOf(starts, size);
+        durations = Arrays.copyOf(durations, size);
+        targets = Arrays.copyOf(targets, size);
+    }
+
+    private void ensureRunning() {
+        if(running) return;
+        running = true;
+        timer.start();
+    }
+}
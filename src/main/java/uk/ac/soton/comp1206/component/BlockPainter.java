@@ -0,0 +1,115 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Paints a single block of a board onto any canvas, at any position. GameBlock paints itself with this, and a
+ * CanvasBoard paints every cell of its one canvas with it, so blocks look the same on either.
+ */
+final class BlockPainter {
+
+    private static final Color BOTTOM_SHADOW = Color.rgb(161, 161, 161, 0.5);
+    private static final Color LEFT_SHADOW = Color.rgb(161, 161, 161, 0.3);
+    private static final Color TOP_LIGHT = Color.rgb(255, 255, 255, 0.5);
+    private static final Color RIGHT_LIGHT = Color.rgb(255, 255, 255, 0.3);
+    private static final Color SHINE = Color.rgb(0, 104, 183, 0.2);
+    private static final Color CENTRE = Color.rgb(128, 128, 128, 0.5);
+    private static final Color PLACEABLE = Color.rgb(255, 255, 255, 0.6);
+    private static final Color PREVIEW = Color.rgb(255, 255, 160, 0.35);
+    private static final Color HOVER = Color.rgb(200, 200, 200, 0.3);
+
+    private BlockPainter() {
+    }
+
+    /**
+     * Paint a block with its overlays
+     * @param gc graphics to paint on
+     * @param x left of the block
+     * @param y top of the block
+     * @param width width of the block
+     * @param height height of the block
+     * @param value value of the block: 0 for empty, otherwise an index into {@link GameBlock#COLOURS}
+     * @param centre whether to mark the block as the centre of a piece
+     * @param placeable whether the current piece can be placed centred on the block
+     * @param preview whether the block is in a line that would clear
+     * @param hover whether the block is hovered
+     */
+    static void paint(GraphicsContext gc, double x, double y, double width, double height, int value, boolean centre,
+                      boolean placeable, boolean preview, boolean hover) {
+        if(value == 0) {
+            paintEmpty(gc, x, y, width, height);
+        } else {
+            paintColour(gc, GameBlock.COLOURS[value], x, y, width, height);
+        }
+
+        if(centre) {
+            double radius = Math.min(width, height) / 4.0;
+            gc.setFill(CENTRE);
+            gc.fillOval(x + width / 2.0 - radius, y + height / 2.0 - radius, radius * 2, radius * 2);
+        }
+
+        //placement overlay
+        if(placeable && value == 0) {
+            gc.setStroke(PLACEABLE);
+            gc.strokeRect(x + 4, y + 4, width - 8, height - 8);
+        }
+
+        //line clear preview
+        if(preview) {
+            gc.setFill(PREVIEW);
+            gc.fillRect(x, y, width, height);
+        }
+
+        if(hover) {
+            gc.setFill(HOVER);
+            gc.fillRect(x, y, width, height);
+        }
+    }
+
+    /**
+     * Paint an empty block
+     */
+    static void paintEmpty(GraphicsContext gc, double x, double y, double width, double height) {
+        gc.clearRect(x, y, width, height);
+
+        //Border
+        gc.setStroke(Color.GRAY);
+        gc.strokeRect(x, y, width, height);
+    }
+
+    /**
+     * Paint a block in the given colour, with light and shadow at its edges
+     */
+    static void paintColour(GraphicsContext gc, Color colour, double x, double y, double width, double height) {
+        gc.clearRect(x, y, width, height);
+
+        //Colour fill
+        gc.setFill(colour);
+        gc.fillRect(x, y, width, height);
+
+        gc.setFill(BOTTOM_SHADOW);
+        gc.fillRect(x + 4, y + height - 4, width - 4, 4);
+
+        gc.setFill(LEFT_SHADOW);
+        gc.fillRect(x, y + 4, 4, height - 4);
+
+        gc.setFill(TOP_LIGHT);
+        gc.fillRect(x, y, width - 4, 4);
+
+        gc.setFill(RIGHT_LIGHT);
+        gc.fillRect(x + width - 4, y, 4, height - 4);
+
+        gc.setFill(SHINE);
+        gc.beginPath();
+        gc.moveTo(x, y);
+        gc.lineTo(x, y + height);
+        gc.lineTo(x + width, y + height);
+        gc.closePath();
+        gc.fill();
+
+        //Border
+        gc.setStroke(Color.BLACK);
+        gc.strokeRect(x, y, width, height);
+    }
+}
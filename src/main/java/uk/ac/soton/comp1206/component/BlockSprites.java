@@ -0,0 +1,162 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+
+import java.util.Arrays;
+
+/**
+ * A cache of pre-rendered blocks for one board, so painting a block is a single image draw instead of a dozen fills
+ * and strokes.
+ *
+ * Each combination of colour and overlays is drawn with {@link BlockPainter} the first time it is needed, at the
+ * board's block size and the screen's render scale so it stays sharp on high density displays, and kept as an image.
+ * Every block of a board is the same size, so the cache holds at most one image per combination. When the block size
+ * or render scale changes the cache is emptied and the images are drawn again at the new size.
+ */
+final class BlockSprites {
+
+    /**
+     * Overlay flags, combined into the key of a sprite
+     */
+    private static final int CENTRE = 1;
+    private static final int PLACEABLE = 2;
+    private static final int PREVIEW = 4;
+    private static final int HOVER = 8;
+    private static final int FLAGS = 16;
+
+    private final Image[] sprites = new Image[GameBlock.COLOURS.length * FLAGS];
+
+    /**
+     * The block size and render scale the cached sprites were drawn at
+     */
+    private double width = 0;
+    private double height = 0;
+    private double scale = 0;
+
+    /**
+     * Canvas the sprites are drawn on before being captured
+     */
+    private Canvas canvas;
+    private final SnapshotParameters parameters = new SnapshotParameters();
+
+    BlockSprites() {
+        parameters.setFill(Color.TRANSPARENT);
+    }
+
+    /**
+     * Paint a block with its overlays, as {@link BlockPainter#paint} would
+     * @param gc graphics to paint on
+     * @param x left of the block
+     * @param y top of the block
+     * @param width width of the block
+     * @param height height of the block
+     * @param scale render scale of the screen the block is shown on
+     * @param value value of the block: 0 for empty, otherwise an index into {@link GameBlock#COLOURS}
+     * @param centre whether to mark the block as the centre of a piece
+     * @param placeable whether the current piece can be placed centred on the block
+     * @param preview whether the block is in a line that would clear
+     * @param hover whether the block is hovered
+     */
+    void paint(GraphicsContext gc, double x, double y, double width, double height, double scale, int value,
+               boolean centre, boolean placeable, boolean preview, boolean hover) {
+        int flags = (centre ? CENTRE : 0) | (placeable && value == 0 ? PLACEABLE : 0) | (preview ? PREVIEW : 0)
+                | (hover ? HOVER : 0);
+        gc.clearRect(x, y, width, height);
+        gc.drawImage(sprite(value, flags, width, height, scale), x, y, width, height);
+    }
+
+    /**
+     * Paint one frame of an effect on a block
+     * @param gc graphics to paint on
+     * @param x left of the block
+     * @param y top of the block
+     * @param width width of the block
+     * @param height height of the block
+     * @param scale render scale of the screen the block is shown on
+     * @param effect effect to paint
+     * @param value value of the block
+     * @param progress how far through the effect, from 0 to 1
+     */
+    void paintEffect(GraphicsContext gc, double x, double y, double width, double height, double scale,
+                     AnimationScheduler.Effect effect, int value, double progress) {
+        gc.clearRect(x, y, width, height);
+        switch (effect) {
+            case FADE -> {
+                //An empty block under a white flash
+                gc.drawImage(sprite(0, 0, width, height, scale), x, y, width, height);
+                flash(gc, x, y, width, height, 1 - progress);
+            }
+            case FLASH -> {
+                gc.drawImage(sprite(value, 0, width, height, scale), x, y, width, height);
+                flash(gc, x, y, width, height, 0.8 * Math.sin(progress * Math.PI));
+            }
+            case POP -> {
+                //Grow from half size, slowing as it reaches full size
+                double size = 1 - 0.5 * (1 - progress) * (1 - progress);
+                gc.drawImage(sprite(0, 0, width, height, scale), x, y, width, height);
+                gc.drawImage(sprite(value, 0, width, height, scale), x + width * (1 - size) / 2,
+                        y + height * (1 - size) / 2, width * size, height * size);
+            }
+        }
+    }
+
+    private static void flash(GraphicsContext gc, double x, double y, double width, double height, double opacity) {
+        gc.setGlobalAlpha(opacity);
+        gc.setFill(Color.WHITE);
+        gc.fillRect(x, y, width, height);
+        gc.setGlobalAlpha(1);
+    }
+
+    /**
+     * Get the sprite for a combination, drawing it if it is not cached at this size and scale
+     */
+    private Image sprite(int value, int flags, double width, double height, double scale) {
+        if(width != this.width || height != this.height || scale != this.scale) {
+            Arrays.fill(sprites, null);
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+            canvas = new Canvas(width, height);
+            parameters.setTransform(Transform.scale(scale, scale));
+        }
+
+        int key = value * FLAGS + flags;
+        if(sprites[key] == null) {
+            var gc = canvas.getGraphicsContext2D();
+            gc.clearRect(0, 0, width, height);
+            BlockPainter.paint(gc, 0, 0, width, height, value, (flags & CENTRE) != 0, (flags & PLACEABLE) != 0,
+                    (flags & PREVIEW) != 0, (flags & HOVER) != 0);
+            sprites[key] = canvas.snapshot(parameters, null);
+        }
+        return sprites[key];
+    }
+
+    /**
+     * Get the render scale of the screen a node is shown on
+     * @param node node on screen
+     * @return output pixels per unit, or 1 if the node is not shown yet
+     */
+    static double renderScale(Node node) {
+        var scene = node.getScene();
+        if(scene == null || scene.getWindow() == null) return 1;
+        return scene.getWindow().getRenderScaleX();
+    }
+
+    /**
+     * Follow the render scale of the screen a node is shown on, for repainting when it changes
+     * @param node node on screen
+     * @return the render scale, which is null while the node is not shown
+     */
+    static ObservableValue<Number> renderScaleProperty(Node node) {
+        return node.sceneProperty().flatMap(Scene::windowProperty).flatMap(Window::renderScaleXProperty);
+    }
+}
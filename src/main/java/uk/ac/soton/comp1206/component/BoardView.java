@@ -0,0 +1,87 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.Node;
+import uk.ac.soton.comp1206.event.CellClickedListener;
+import uk.ac.soton.comp1206.event.CellHoveredListener;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.LineClear;
+
+/**
+ * A BoardView is a visual component that displays a Grid and lets the player aim at and click its cells. A GameBoard
+ * does this with a GameBlock node per cell; a CanvasBoard draws every cell on one canvas.
+ *
+ * Cells are addressed by column and row, so a scene can use either kind of board.
+ */
+public interface BoardView {
+
+    /**
+     * Get the node to add to the scene graph
+     * @return the board's node
+     */
+    public Node getNode();
+
+    /**
+     * Hover over a cell, as when the player aims at it with the keyboard. A board showing only part of the grid brings
+     * the cell into view.
+     * @param x column
+     * @param y row
+     */
+    public void hover(int x, int y);
+
+    /**
+     * Get the column of the cell last hovered
+     * @return column, or -1 if no cell has been hovered yet
+     */
+    public int getHoveredX();
+
+    /**
+     * Get the row of the cell last hovered
+     * @return row, or -1 if no cell has been hovered yet
+     */
+    public int getHoveredY();
+
+    /**
+     * Show which cells the current piece can be centred on
+     * @param mask mask of valid centres from the grid of this board
+     */
+    public void showPlacements(long[] mask);
+
+    /**
+     * Highlight the lines that would clear around a placement
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     * @param lines line mask as from {@link Grid#fullLines}, or 0 to clear the highlight
+     */
+    public void showLines(int x, int y, int lines);
+
+    /**
+     * Fade out every cell emptied by a line clear
+     * @param clear the cleared cells
+     */
+    public void fadeOut(LineClear clear);
+
+    /**
+     * Run an effect on a cell
+     * @param effect effect to run
+     * @param x column
+     * @param y row
+     */
+    public void animate(AnimationScheduler.Effect effect, int x, int y);
+
+    /**
+     * Set the listener to handle an event when a cell is clicked
+     * @param listener listener to set
+     */
+    public void setOnCellClick(CellClickedListener listener);
+
+    /**
+     * Set the listener to handle an event when a cell is hovered
+     * @param listener listener to set
+     */
+    public void setOnCellHover(CellHoveredListener listener);
+
+    /**
+     * Stop following the grid and the scheduler once the board is no longer shown, so neither keeps it alive
+     */
+    public void dispose();
+}
@@ -0,0 +1,576 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.CellClickedListener;
+import uk.ac.soton.comp1206.event.CellHoveredListener;
+import uk.ac.soton.comp1206.game.DirtyTracker;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.LineClear;
+
+/**
+ * A CanvasBoard is a visual component that draws a Grid on a single Canvas, instead of using a node per cell as a
+ * GameBoard does, so it costs one node however large the board is.
+ *
+ * The canvas is a viewport onto the board. A board that fits is shown whole, centred. A board too large to show with
+ * cells of at least {@link #MIN_CELL_SIZE} is shown in part, and can be scrolled by dragging with the mouse or by
+ * aiming at cells with the keyboard, which pans smoothly to keep the aimed cell and the piece around it in view. The
+ * mouse wheel zooms in and out around the mouse. Only the cells in view are ever painted, so the cost of drawing stays
+ * bounded by the size of the canvas however large the grid is.
+ *
+ * Nothing is drawn when a cell changes. Instead the grid marks the cell in this board's DirtyTracker, and once per
+ * pulse the board drains the tracker and repaints only the cells in view changed since the last pulse, along with any whose highlights
+ * changed, so a line clear that changes a whole row is painted in one go. Pulses come from the scene's
+ * AnimationScheduler, which paints any cell effects straight after. The board works out which cell the mouse is over
+ * from the mouse position.
+ *
+ * The CanvasBoard is only a visual representation and should not contain game logic or model logic in it, which
+ * should take place in the Grid.
+ */
+public class CanvasBoard extends Canvas implements BoardView {
+
+    private static final Logger logger = LogManager.getLogger(CanvasBoard.class);
+
+    /**
+     * The smallest size a cell is drawn at, which bounds how many cells can be in view at once
+     */
+    public static final double MIN_CELL_SIZE = 8;
+
+    /**
+     * The largest size a cell can be zoomed to, unless the whole board fits at a larger size
+     */
+    public static final double MAX_CELL_SIZE = 64;
+
+    /**
+     * How much each step of the mouse wheel zooms
+     */
+    private static final double ZOOM_STEP = 1.25;
+
+    /**
+     * Time for a pan to cover about two thirds of the remaining distance, in nanoseconds
+     */
+    private static final double PAN_TIME = 60_000_000;
+
+    /**
+     * Cells kept in view around an aimed cell, so the piece centred on it can be seen
+     */
+    private static final int AIM_MARGIN = 2;
+
+    /**
+     * How far the mouse must move with a button down to drag rather than click
+     */
+    private static final double DRAG_THRESHOLD = 4;
+
+    /**
+     * The grid this board represents
+     */
+    private final Grid grid;
+
+    private final int cols;
+    private final int rows;
+    private final int chunksX;
+
+    /**
+     * The size cells are drawn at, and the size at which the whole board fits
+     */
+    private double cellSize;
+    private final double fitSize;
+
+    /**
+     * The position of the top left of the viewport on the board, in pixels at the current cell size. Negative when the
+     * board is narrower or shorter than the viewport and centred in it.
+     */
+    private double viewX = 0;
+    private double viewY = 0;
+
+    /**
+     * Where the viewport is panning to, and when it last moved
+     */
+    private double targetX = 0;
+    private double targetY = 0;
+    private boolean panning = false;
+    private long panTime = 0;
+
+    /**
+     * Where a drag began, with the viewport position at the time
+     */
+    private double dragX;
+    private double dragY;
+    private double dragViewX;
+    private double dragViewY;
+    private boolean dragging = false;
+
+    /**
+     * Set when the viewport has moved or zoomed, so every cell in view must be repainted
+     */
+    private boolean viewChanged = true;
+
+    /**
+     * Cells to repaint on the next pulse if they are in view, laid out like the grid's chunks as in
+     * {@link Grid#placementMask}
+     */
+    private final long[] dirty;
+    private boolean anyDirty = false;
+
+    /**
+     * The cells changed in the grid since the last pulse, and the version of the grid last drawn
+     */
+    private final DirtyTracker changes;
+    private long drawnVersion = -1;
+
+    /**
+     * Run on each pulse asked for, kept so it can be removed from the scheduler again
+     */
+    private final Runnable frameListener = this::repaint;
+
+    /**
+     * Valid centres for the current piece, in the form of {@link Grid#placementMask}, or null to show none
+     */
+    private long[] placements;
+
+    /**
+     * The line mask highlighted, and the centre it is around
+     */
+    private int lines = 0;
+    private int linesX = 0;
+    private int linesY = 0;
+
+    /**
+     * The cell last hovered, and whether the mouse or aim is still on it
+     */
+    private int hoverX = -1;
+    private int hoverY = -1;
+    private boolean hovering = false;
+
+    /**
+     * Gives the pulses the dirty cells are repainted on, and runs the effects on cells
+     */
+    private final AnimationScheduler scheduler;
+
+    /**
+     * Paints the effects the scheduler runs, over the cells as repainted this pulse
+     */
+    private final AnimationScheduler.Target effects = new AnimationScheduler.Target() {
+        @Override
+        public void paintEffect(AnimationScheduler.Effect effect, int x, int y, double progress) {
+            if(!inView(x, y)) return;
+            sprites.paintEffect(getGraphicsContext2D(), x * cellSize - viewX, y * cellSize - viewY, cellSize, cellSize,
+                    BlockSprites.renderScale(CanvasBoard.this), effect, grid.get(x, y), progress);
+        }
+
+        @Override
+        public void effectEnded(AnimationScheduler.Effect effect, int x, int y) {
+            markDirty(x, y);
+        }
+    };
+
+    /**
+     * Pre-rendered blocks, all at this board's cell size
+     */
+    private final BlockSprites sprites = new BlockSprites();
+
+    private CellClickedListener cellClickedListener;
+    private CellHoveredListener cellHoveredListener;
+
+    /**
+     * Create a new CanvasBoard, based off a given grid, with a visual width and height, painting on the pulses of the
+     * scene's scheduler
+     * @param grid linked grid
+     * @param width the visual width
+     * @param height the visual height
+     * @param scheduler scheduler to paint and run effects on
+     */
+    public CanvasBoard(Grid grid, double width, double height, AnimationScheduler scheduler) {
+        super(width, height);
+        this.scheduler = scheduler;
+        this.grid = grid;
+        this.cols = grid.getCols();
+        this.rows = grid.getRows();
+        this.fitSize = Math.min(width / cols, height / rows);
+        this.cellSize = Math.max(fitSize, MIN_CELL_SIZE);
+        this.chunksX = (cols + Grid.CHUNK - 1) / Grid.CHUNK;
+        this.dirty = new long[chunksX * ((rows + Grid.CHUNK - 1) / Grid.CHUNK)];
+        clampView();
+
+        scheduler.addFrameListener(frameListener);
+        changes = grid.trackDirty(scheduler::requestFrame);
+
+        setOnMouseMoved(this::mouseMoved);
+        setOnMouseExited(event -> {
+            if(!hovering) return;
+            hovering = false;
+            markDirty(hoverX, hoverY);
+        });
+        setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+            dragViewX = viewX;
+            dragViewY = viewY;
+            dragging = false;
+        });
+        setOnMouseDragged(this::mouseDragged);
+        setOnMouseClicked(event -> {
+            //The end of a drag is not a click
+            if(event.getButton() != MouseButton.PRIMARY || dragging) return;
+            int x = colAt(event.getX());
+            int y = rowAt(event.getY());
+            if(x < 0 || y < 0) return;
+            logger.info("Cell clicked: {}, {}", x, y);
+            if(cellClickedListener != null) cellClickedListener.cellClicked(x, y);
+        });
+        setOnScroll(this::zoom);
+
+        //Paint the view on the first pulse, and again sharply when moved to a screen with a different render scale
+        changeView();
+        BlockSprites.renderScaleProperty(this).addListener((observable, oldScale, newScale) -> changeView());
+    }
+
+    /**
+     * Hover over the cell under the mouse, if it has changed
+     */
+    private void mouseMoved(MouseEvent event) {
+        int x = colAt(event.getX());
+        int y = rowAt(event.getY());
+        if(x < 0 || y < 0 || (hovering && x == hoverX && y == hoverY)) return;
+        hoverCell(x, y);
+    }
+
+    /**
+     * Scroll the viewport with the mouse, once it has moved far enough from where the button was pressed
+     */
+    private void mouseDragged(MouseEvent event) {
+        double dx = event.getX() - dragX;
+        double dy = event.getY() - dragY;
+        if(!dragging && Math.hypot(dx, dy) < DRAG_THRESHOLD) return;
+        dragging = true;
+        panning = false;
+        viewX = dragViewX - dx;
+        viewY = dragViewY - dy;
+        clampView();
+        changeView();
+    }
+
+    /**
+     * Zoom in or out one step, keeping the point under the mouse still
+     */
+    private void zoom(ScrollEvent event) {
+        if(event.getDeltaY() == 0) return;
+        double size = event.getDeltaY() > 0 ? cellSize * ZOOM_STEP : cellSize / ZOOM_STEP;
+        size = Math.max(Math.max(fitSize, MIN_CELL_SIZE), Math.min(Math.max(fitSize, MAX_CELL_SIZE), size));
+        event.consume();
+        if(size == cellSize) return;
+
+        //The board position under the mouse, in cells
+        double cellX = (event.getX() + viewX) / cellSize;
+        double cellY = (event.getY() + viewY) / cellSize;
+        cellSize = size;
+        viewX = cellX * cellSize - event.getX();
+        viewY = cellY * cellSize - event.getY();
+        panning = false;
+        clampView();
+        changeView();
+    }
+
+    /**
+     * Find the column under a position on the canvas
+     * @return the column, or -1 if the position is off the board
+     */
+    private int colAt(double position) {
+        int cell = (int) Math.floor((position + viewX) / cellSize);
+        return cell < 0 || cell >= cols ? -1 : cell;
+    }
+
+    /**
+     * Find the row under a position on the canvas
+     * @return the row, or -1 if the position is off the board
+     */
+    private int rowAt(double position) {
+        int cell = (int) Math.floor((position + viewY) / cellSize);
+        return cell < 0 || cell >= rows ? -1 : cell;
+    }
+
+    @Override
+    public Node getNode() {
+        return this;
+    }
+
+    /**
+     * Hover over a cell, panning the viewport smoothly to bring it into view if it is out of view
+     * @param x column
+     * @param y row
+     */
+    @Override
+    public void hover(int x, int y) {
+        hoverCell(x, y);
+        scrollIntoView(x, y);
+    }
+
+    private void hoverCell(int x, int y) {
+        if(hoverX >= 0) markDirty(hoverX, hoverY);
+        hoverX = x;
+        hoverY = y;
+        hovering = true;
+        markDirty(x, y);
+
+        if(cellHoveredListener != null) cellHoveredListener.cellHovered(x, y);
+    }
+
+    @Override
+    public int getHoveredX() {
+        return hoverX;
+    }
+
+    @Override
+    public int getHoveredY() {
+        return hoverY;
+    }
+
+    /**
+     * Show which cells the current piece can be centred on. Only the cells whose state changed are repainted.
+     * @param mask mask of valid centres from the grid of this board
+     */
+    @Override
+    public void showPlacements(long[] mask) {
+        long changed = 0;
+        for(int chunk = 0; chunk < mask.length; chunk++) {
+            long bits = mask[chunk] ^ (placements == null ? 0 : placements[chunk]);
+            dirty[chunk] |= bits;
+            changed |= bits;
+        }
+        placements = mask.clone();
+        if(changed != 0) {
+            anyDirty = true;
+            scheduler.requestFrame();
+        }
+    }
+
+    @Override
+    public void showLines(int x, int y, int lines) {
+        if(x == linesX && y == linesY && lines == this.lines) return;
+        markLines(linesX, linesY, this.lines);
+        linesX = x;
+        linesY = y;
+        this.lines = lines;
+        markLines(x, y, lines);
+    }
+
+    /**
+     * Fade out every cell emptied by a line clear, all on the one pulse that repaints the board
+     * @param clear the cleared cells
+     */
+    @Override
+    public void fadeOut(LineClear clear) {
+        for(int cell = 0; cell < clear.getCellCount(); cell++) {
+            scheduler.start(effects, AnimationScheduler.Effect.FADE, clear.getCellX(cell), clear.getCellY(cell));
+        }
+    }
+
+    @Override
+    public void animate(AnimationScheduler.Effect effect, int x, int y) {
+        scheduler.start(effects, effect, x, y);
+    }
+
+    @Override
+    public void setOnCellClick(CellClickedListener listener) {
+        this.cellClickedListener = listener;
+    }
+
+    @Override
+    public void setOnCellHover(CellHoveredListener listener) {
+        this.cellHoveredListener = listener;
+    }
+
+    @Override
+    public void dispose() {
+        grid.stopTracking(changes);
+        scheduler.removeFrameListener(frameListener);
+    }
+
+    /**
+     * Start panning so a cell and the cells around it are in view, if they are not already
+     * @param x column
+     * @param y row
+     */
+    public void scrollIntoView(int x, int y) {
+        //Move on from where the viewport is heading, so holding a key down keeps panning the same way
+        double fromX = panning ? targetX : viewX;
+        double fromY = panning ? targetY : viewY;
+        double toX = Math.max(fromX, (x + AIM_MARGIN + 1) * cellSize - getWidth());
+        double toY = Math.max(fromY, (y + AIM_MARGIN + 1) * cellSize - getHeight());
+        toX = clamp(Math.min(toX, (x - AIM_MARGIN) * cellSize), cols * cellSize, getWidth());
+        toY = clamp(Math.min(toY, (y - AIM_MARGIN) * cellSize), rows * cellSize, getHeight());
+        if(toX == fromX && toY == fromY) return;
+
+        targetX = toX;
+        targetY = toY;
+        if(!panning) panTime = System.nanoTime();
+        panning = true;
+        scheduler.requestFrame();
+    }
+
+    /**
+     * Move the viewport part of the way to where it is panning to, easing out as it arrives
+     */
+    private void stepPan() {
+        if(!panning) return;
+        long now = System.nanoTime();
+        double step = 1 - Math.exp(-(now - panTime) / PAN_TIME);
+        panTime = now;
+
+        viewX += (targetX - viewX) * step;
+        viewY += (targetY - viewY) * step;
+        if(Math.abs(targetX - viewX) < 0.5 && Math.abs(targetY - viewY) < 0.5) {
+            viewX = targetX;
+            viewY = targetY;
+            panning = false;
+        } else {
+            scheduler.requestFrame();
+        }
+        viewChanged = true;
+    }
+
+    /**
+     * Keep the viewport on the board, or centre the board if it is smaller than the viewport
+     */
+    private void clampView() {
+        viewX = clamp(viewX, cols * cellSize, getWidth());
+        viewY = clamp(viewY, rows * cellSize, getHeight());
+    }
+
+    private static double clamp(double view, double board, double viewport) {
+        if(board <= viewport) return -(viewport - board) / 2;
+        return Math.max(0, Math.min(board - viewport, view));
+    }
+
+    /**
+     * Repaint every cell in view on the next pulse
+     */
+    private void changeView() {
+        viewChanged = true;
+        scheduler.requestFrame();
+    }
+
+    /**
+     * Check whether any part of a cell is in view
+     */
+    private boolean inView(int x, int y) {
+        return x >= firstCol() && x <= lastCol() && y >= firstRow() && y <= lastRow();
+    }
+
+    private int firstCol() {
+        return Math.max(0, (int) Math.floor(viewX / cellSize));
+    }
+
+    private int lastCol() {
+        return Math.min(cols - 1, (int) Math.ceil((viewX + getWidth()) / cellSize) - 1);
+    }
+
+    private int firstRow() {
+        return Math.max(0, (int) Math.floor(viewY / cellSize));
+    }
+
+    private int lastRow() {
+        return Math.min(rows - 1, (int) Math.ceil((viewY + getHeight()) / cellSize) - 1);
+    }
+
+    /**
+     * Mark a cell to be repainted on the next pulse
+     * @param x column
+     * @param y row
+     */
+    private void markDirty(int x, int y) {
+        int chunk = (y / Grid.CHUNK) * chunksX + (x / Grid.CHUNK);
+        dirty[chunk] |= 1L << ((x % Grid.CHUNK) + Grid.CHUNK * (y % Grid.CHUNK));
+        anyDirty = true;
+        scheduler.requestFrame();
+    }
+
+    private void markRow(int y) {
+        for(int x = 0; x < cols; x++) {
+            markDirty(x, y);
+        }
+    }
+
+    private void markColumn(int x) {
+        for(int y = 0; y < rows; y++) {
+            markDirty(x, y);
+        }
+    }
+
+    /**
+     * Mark every cell of the lines in a line mask
+     */
+    private void markLines(int x, int y, int lines) {
+        for(int i = 0; i < 3; i++) {
+            if((lines & (1 << i)) != 0) markRow(y - 1 + i);
+            if((lines & (1 << (3 + i))) != 0) markColumn(x - 1 + i);
+        }
+    }
+
+    /**
+     * Repaint the cells in view changed in the grid or marked by this board since the last pulse, or every cell in
+     * view if the viewport has moved. Only the chunks in view are visited; marks on cells out of view are left, as
+     * those cells are repainted anyway when the viewport moves onto them.
+     */
+    private void repaint() {
+        if(grid.getVersion() != drawnVersion) {
+            drawnVersion = grid.getVersion();
+            anyDirty |= changes.drain(dirty);
+        }
+        stepPan();
+        if(!anyDirty && !viewChanged) return;
+        anyDirty = false;
+        boolean all = viewChanged;
+        viewChanged = false;
+
+        var gc = getGraphicsContext2D();
+        double scale = BlockSprites.renderScale(this);
+        int firstCol = firstCol();
+        int lastCol = lastCol();
+        int firstRow = firstRow();
+        int lastRow = lastRow();
+
+        if(all) {
+            gc.clearRect(0, 0, getWidth(), getHeight());
+            for(int y = firstRow; y <= lastRow; y++) {
+                for(int x = firstCol; x <= lastCol; x++) {
+                    paintCell(gc, scale, x, y);
+                }
+            }
+        }
+
+        for(int chunkY = firstRow / Grid.CHUNK; chunkY <= lastRow / Grid.CHUNK; chunkY++) {
+            for(int chunkX = firstCol / Grid.CHUNK; chunkX <= lastCol / Grid.CHUNK; chunkX++) {
+                int chunk = chunkY * chunksX + chunkX;
+                long bits = dirty[chunk];
+                dirty[chunk] = 0;
+                while(!all && bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int x = chunkX * Grid.CHUNK + bit % Grid.CHUNK;
+                    int y = chunkY * Grid.CHUNK + bit / Grid.CHUNK;
+                    if(x >= firstCol && x <= lastCol && y >= firstRow && y <= lastRow) paintCell(gc, scale, x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Paint a single cell as it is now
+     */
+    private void paintCell(GraphicsContext gc, double scale, int x, int y) {
+        int row = y - linesY + 1;
+        int col = x - linesX + 1;
+        boolean preview = (row >= 0 && row < 3 && (lines & (1 << row)) != 0)
+                || (col >= 0 && col < 3 && (lines & (1 << (3 + col))) != 0);
+        boolean placeable = placements != null && grid.inMask(placements, x, y);
+        sprites.paint(gc, x * cellSize - viewX, y * cellSize - viewY, cellSize, cellSize, scale, grid.get(x, y), false,
+                placeable, preview, hovering && x == hoverX && y == hoverY);
+    }
+}
@@ -1,11 +1,10 @@
 package uk.ac.soton.comp1206.component;
 
-import javafx.animation.AnimationTimer;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.paint.*;
+import javafx.scene.paint.Color;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -16,12 +15,23 @@ import org.apache.logging.log4j.Logger;
  *
  * Displays an empty square (when the value is 0) or a coloured square depending on value.
  *
- * The GameBlock value should be bound to a corresponding block in the Grid model.
+ * The GameBlock value is kept up to date with a corresponding block in the Grid model by its GameBoard, or can be bound
+ * to one.
  */
 public class GameBlock extends Canvas {
 
     private boolean current = false;
 
+    /**
+     * Whether the current piece can be placed centred on this block
+     */
+    private boolean placeable = false;
+
+    /**
+     * Whether this block is in a line that would clear if the current piece were placed where it is aimed
+     */
+    private boolean preview = false;
+
     /**
      * The set of colours for different pieces
      */
@@ -59,11 +69,6 @@ public class GameBlock extends Canvas {
      */
     private final int y;
 
-    /**
-     * fade out animation
-     */
-    AnimationTimer animationTimer;
-
     /**
      * The value of this block (0 = empty, otherwise specifies the colour to render as)
      */
@@ -109,36 +114,11 @@ public class GameBlock extends Canvas {
      * Handle painting of the block canvas
      */
     public void paint() {
-        //If the block is empty, paint as empty
-        if(value.get() == 0) {
-            paintEmpty();
-        } else {
-            //If the block is not empty, paint with the colour represented by the value
-            paintColor(COLOURS[value.get()]);
-        }
-
-        //put circle on the centre
-        if(gameBoard.getColumnCount() == 3 && gameBoard.getWidth() != 60) {
-            if (x == 1 && y == 1) {
-                var gc = getGraphicsContext2D();
+        //put circle on the centre of a piece board
+        boolean centre = gameBoard.getColumnCount() == 3 && gameBoard.getWidth() != 60 && x == 1 && y == 1;
 
-                double centerX = width / 2.0;
-                double centerY = height / 2.0;
-                double radius = Math.min(width, height) / 4.0;
-
-                Paint fill = Color.rgb(128, 128, 128, 0.5); // 半透明のグレー
-                gc.setFill(fill);
-
-                gc.fillOval(centerX - radius, centerY - radius, radius * 2, radius * 2);
-            }
-        }
-
-        //hover
-        if(this.current){
-            var gc = getGraphicsContext2D();
-            gc.setFill(Color.rgb(200,200,200,0.3));
-            gc.fillRect(0,0,width,height);
-        }
+        gameBoard.getSprites().paint(getGraphicsContext2D(), 0, 0, width, height, BlockSprites.renderScale(this),
+                value.get(), centre, placeable, preview, current);
     }
 
     /**
@@ -151,87 +131,33 @@ public class GameBlock extends Canvas {
     }
 
     /**
-     * Paint this canvas empty
+     * Mark whether the current piece can be placed centred on this block
+     * @param placeable true if the piece fits here
      */
-    private void paintEmpty() {
-        var gc = getGraphicsContext2D();
-
-        //Clear
-        gc.clearRect(0,0,width,height);
-
-        //Fill
-        gc.setFill(Color.WHITE);
-        gc.fillRect(0,0, 0, 0.5);  //(0,0, width, height);
-
-        //Border
-        gc.setStroke(Color.GRAY);
-        gc.strokeRect(0,0,width,height);
-    }
-
-    /**
-     * Paint this canvas with the given colour
-     * @param colour the colour to paint
-     */
-    private void paintColor(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        //Clear
-        gc.clearRect(0,0,width,height);
-
-        //Colour fill
-        gc.setFill(colour);
-        gc.fillRect(0,0, width, height);
-
-
-        gc.setFill(Color.rgb(161, 161, 161, 0.5));  // bottom shadow
-        gc.fillRect(4, height - 4, width - 4, 4);
-
-        gc.setFill(Color.rgb(161, 161, 161, 0.3));  // left shadow
-        gc.fillRect(0, 4, 4, height - 4);
-
-        gc.setFill(Color.rgb(255, 255, 255, 0.5));  // top light
-        gc.fillRect(0, 0, width - 4, 4);
-
-        gc.setFill(Color.rgb(255, 255, 255, 0.3));  // right light
-        gc.fillRect(width - 4, 0, 4, height - 4);
-
-        gc.setFill(Color.rgb(0, 104, 183, 0.2));
-        gc.fillPolygon(new double[]{0,0,width}, new double[]{0,height,height},3);
-
-        //Border
-        gc.setStroke(Color.BLACK);
-        gc.strokeRect(0,0,width,height);
+    public void setPlaceable(boolean placeable){
+        if(this.placeable == placeable) return;
+        this.placeable = placeable;
+        paint();
     }
 
     /**
-     * Call myAnimationTimer to set fade out animation
+     * Mark whether this block is in a line that would clear
+     * @param preview true to highlight this block
      */
-    public void fadeOut() {
-        animationTimer = new myAnimationTimer();
-        animationTimer.start();
+    public void setPreview(boolean preview){
+        if(this.preview == preview) return;
+        this.preview = preview;
+        paint();
     }
 
     /**
-     * Inner class for timer animation
+     * Paint one frame of an effect, driven by the board's AnimationScheduler along with every other running effect
+     * @param effect effect to paint
+     * @param progress how far through the effect, from 0 to 1
      */
-    private class myAnimationTimer extends AnimationTimer {
-        double fadeOut = 1;
-
-        @Override
-        public void handle(long l) {
-            {
-                paintEmpty();
-                var graphic = getGraphicsContext2D();
-                fadeOut -= 0.05;
-
-                if (fadeOut <= 0.0) {
-                    stop();
-                    animationTimer = null;
-                }
-                graphic.setFill(Color.WHITE.deriveColor(0,0,1,fadeOut));
-                graphic.fillRect(0,0,width,height);
-            }
-        }
+    void paintEffect(AnimationScheduler.Effect effect, double progress) {
+        gameBoard.getSprites().paintEffect(getGraphicsContext2D(), 0, 0, width, height,
+                BlockSprites.renderScale(this), effect, value.get(), progress);
     }
 
     /**
@@ -258,6 +184,14 @@ public class GameBlock extends Canvas {
         return this.value.get();
     }
 
+    /**
+     * Show a new value, repainting if it has changed. Used by the GameBoard to copy across cells changed in the Grid.
+     * @param value the new value
+     */
+    void setValue(int value) {
+        this.value.set(value);
+    }
+
     /**
      * Bind the value of this block to another property. Used to link the visual block to a corresponding block in the Grid.
      * @param input property to bind the value to
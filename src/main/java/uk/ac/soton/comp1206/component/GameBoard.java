@@ -1,12 +1,17 @@
 package uk.ac.soton.comp1206.component;
 
+import javafx.scene.Node;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.BlockClickedListener;
+import uk.ac.soton.comp1206.event.CellClickedListener;
+import uk.ac.soton.comp1206.event.CellHoveredListener;
+import uk.ac.soton.comp1206.game.DirtyTracker;
 import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.LineClear;
 
 /**
  * A GameBoard is a visual component to represent the visual GameBoard.
@@ -15,10 +20,14 @@ import uk.ac.soton.comp1206.game.Grid;
  * The GameBoard can hold an internal grid of it's own, for example, for displaying an upcoming block. It also be
  * linked to an external grid, for the main game board.
  *
+ * Every cell is a GameBlock node, which suits small boards. A CanvasBoard draws larger boards on a single canvas.
+ * Blocks are not bound to the cells of the grid; instead the board drains its DirtyTracker on the grid once per pulse
+ * and updates only the blocks whose cells changed, so each block repaints at most once a frame.
+ *
  * The GameBoard is only a visual representation and should not contain game logic or model logic in it, which should
  * take place in the Grid.
  */
-public class GameBoard extends GridPane {
+public class GameBoard extends GridPane implements BoardView {
 
     private static final Logger logger = LogManager.getLogger(GameBoard.class);
 
@@ -47,6 +56,19 @@ public class GameBoard extends GridPane {
      */
     final Grid grid;
 
+    /**
+     * The cells changed in the grid since the blocks were last updated, the mask they are drained into, and the
+     * version of the grid the blocks show
+     */
+    private DirtyTracker changes;
+    private long[] changed;
+    private long drawnVersion = -1;
+
+    /**
+     * Run on each pulse asked for, kept so it can be removed from the scheduler again
+     */
+    private final Runnable frameListener = this::refresh;
+
     /**
      * The blocks inside the grid
      */
@@ -56,17 +78,50 @@ public class GameBoard extends GridPane {
      * The listener to call when a specific block is clicked
      */
     private BlockClickedListener blockClickedListener;
+
+    /**
+     * The listeners to call with the column and row of a block clicked or hovered
+     */
+    private CellClickedListener cellClickedListener;
+    private CellHoveredListener cellHoveredListener;
     private GameBlock current;
 
+    /**
+     * Pre-rendered blocks shared by every block of this board
+     */
+    private final BlockSprites sprites = new BlockSprites();
+
+    /**
+     * Runs the effects on this board's blocks, shared with the rest of the scene
+     */
+    private final AnimationScheduler scheduler;
+
+    /**
+     * Paints and restores the blocks the scheduler runs effects on
+     */
+    private final AnimationScheduler.Target effects = new AnimationScheduler.Target() {
+        @Override
+        public void paintEffect(AnimationScheduler.Effect effect, int x, int y, double progress) {
+            blocks[x][y].paintEffect(effect, progress);
+        }
+
+        @Override
+        public void effectEnded(AnimationScheduler.Effect effect, int x, int y) {
+            blocks[x][y].paint();
+        }
+    };
 
     /**
-     * Create a new GameBoard, based off a given grid, with a visual width and height.
+     * Create a new GameBoard, based off a given grid, with a visual width and height, running its effects on the
+     * scene's scheduler.
      *
-     * @param grid   linked grid
-     * @param width  the visual width
-     * @param height the visual height
+     * @param grid      linked grid
+     * @param width     the visual width
+     * @param height    the visual height
+     * @param scheduler scheduler to run effects on
      */
-    public GameBoard(Grid grid, double width, double height) {
+    public GameBoard(Grid grid, double width, double height, AnimationScheduler scheduler) {
+        this.scheduler = scheduler;
         this.cols = grid.getCols();
         this.rows = grid.getRows();
         this.width = width;
@@ -79,14 +134,16 @@ public class GameBoard extends GridPane {
 
     /**
      * Create a new GameBoard with it's own internal grid, specifying the number of columns and rows, along with the
-     * visual width and height.
+     * visual width and height, running its effects on the scene's scheduler.
      *
-     * @param cols   number of columns for internal grid
-     * @param rows   number of rows for internal grid
-     * @param width  the visual width
-     * @param height the visual height
+     * @param cols      number of columns for internal grid
+     * @param rows      number of rows for internal grid
+     * @param width     the visual width
+     * @param height    the visual height
+     * @param scheduler scheduler to run effects on
      */
-    public GameBoard(int cols, int rows, double width, double height) {
+    public GameBoard(int cols, int rows, double width, double height, AnimationScheduler scheduler) {
+        this.scheduler = scheduler;
         this.cols = cols;
         this.rows = rows;
         this.width = width;
@@ -108,6 +165,14 @@ public class GameBoard extends GridPane {
         return blocks[x][y];
     }
 
+    /**
+     * Get the pre-rendered blocks for painting the blocks of this board
+     * @return block sprites
+     */
+    BlockSprites getSprites() {
+        return sprites;
+    }
+
     /**
      * Build the GameBoard by creating a block at every x and y column and row
      */
@@ -115,6 +180,20 @@ public class GameBoard extends GridPane {
         setMaxWidth(width);
         setMaxHeight(height);
 
+        //Show changes to the grid once per pulse
+        changed = new long[((cols + Grid.CHUNK - 1) / Grid.CHUNK) * ((rows + Grid.CHUNK - 1) / Grid.CHUNK)];
+        changes = grid.trackDirty(scheduler::requestFrame);
+        scheduler.addFrameListener(frameListener);
+
+        //Redraw the blocks sharply when the board moves to a screen with a different render scale
+        BlockSprites.renderScaleProperty(this).addListener((observable, oldScale, newScale) -> {
+            for (GameBlock[] column : blocks) {
+                for (GameBlock block : column) {
+                    if (block != null) block.paint();
+                }
+            }
+        });
+
         setGridLinesVisible(true);
 
         blocks = new GameBlock[cols][rows];
@@ -155,8 +234,8 @@ public class GameBoard extends GridPane {
         //Add to our block directory
         blocks[x][y] = block;
 
-        //Link the GameBlock component to the corresponding value in the Grid
-        block.bind(grid.getGridProperty(x, y));
+        //Show the corresponding value in the Grid, which is kept up to date by refresh
+        block.setValue(grid.get(x, y));
 
         //Add a mouse click handler to the block to trigger GameBoard blockClicked method
         block.setOnMouseClicked(event -> {
@@ -177,6 +256,28 @@ public class GameBoard extends GridPane {
         return block;
     }
 
+    /**
+     * Update the blocks whose cells have changed since the last pulse
+     */
+    private void refresh() {
+        if(grid.getVersion() == drawnVersion) return;
+        drawnVersion = grid.getVersion();
+        if(!changes.drain(changed)) return;
+
+        int chunksX = (cols + Grid.CHUNK - 1) / Grid.CHUNK;
+        for (int chunk = 0; chunk < changed.length; chunk++) {
+            long bits = changed[chunk];
+            changed[chunk] = 0;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int x = (chunk % chunksX) * Grid.CHUNK + bit % Grid.CHUNK;
+                int y = (chunk / chunksX) * Grid.CHUNK + bit / Grid.CHUNK;
+                if (blocks[x][y] != null) blocks[x][y].setValue(grid.get(x, y));
+            }
+        }
+    }
+
     /**
      * Catch the current block
      * @param gameBlock
@@ -186,10 +287,76 @@ public class GameBoard extends GridPane {
 
         current = gameBlock;
         gameBlock.hover(true);
+
+        if(cellHoveredListener != null) {
+            cellHoveredListener.cellHovered(gameBlock.getX(), gameBlock.getY());
+        }
+    }
+
+    @Override
+    public void hover(int x, int y) {
+        hover(blocks[x][y]);
+    }
+
+    @Override
+    public int getHoveredX() {
+        return current == null ? -1 : current.getX();
+    }
+
+    @Override
+    public int getHoveredY() {
+        return current == null ? -1 : current.getY();
+    }
+
+    @Override
+    public Node getNode() {
+        return this;
+    }
+
+    /**
+     * Get the block currently hovered
+     * @return hovered block, or null if none has been hovered yet
+     */
+    public GameBlock getHovered() {
+        return current;
+    }
+
+    @Override
+    public void showLines(int x, int y, int lines) {
+        for (var r = 0; r < rows; r++) {
+            int row = r - y + 1;
+            boolean rowClears = row >= 0 && row < 3 && (lines & (1 << row)) != 0;
+            for (var c = 0; c < cols; c++) {
+                int col = c - x + 1;
+                boolean colClears = col >= 0 && col < 3 && (lines & (1 << (3 + col))) != 0;
+                blocks[c][r].setPreview(rowClears || colClears);
+            }
+        }
     }
 
-    public void fadeOut(int x, int y) {
-        blocks[x][y].fadeOut();
+    @Override
+    public void showPlacements(long[] mask) {
+        for (var y = 0; y < rows; y++) {
+            for (var x = 0; x < cols; x++) {
+                blocks[x][y].setPlaceable(grid.inMask(mask, x, y));
+            }
+        }
+    }
+
+    /**
+     * Fade out every block emptied by a line clear, all driven by the scene's one scheduler
+     * @param clear the cleared cells
+     */
+    @Override
+    public void fadeOut(LineClear clear) {
+        for (int cell = 0; cell < clear.getCellCount(); cell++) {
+            scheduler.start(effects, AnimationScheduler.Effect.FADE, clear.getCellX(cell), clear.getCellY(cell));
+        }
+    }
+
+    @Override
+    public void animate(AnimationScheduler.Effect effect, int x, int y) {
+        scheduler.start(effects, effect, x, y);
     }
 
     /**
@@ -201,6 +368,22 @@ public class GameBoard extends GridPane {
         this.blockClickedListener = listener;
     }
 
+    @Override
+    public void setOnCellClick(CellClickedListener listener) {
+        this.cellClickedListener = listener;
+    }
+
+    @Override
+    public void setOnCellHover(CellHoveredListener listener) {
+        this.cellHoveredListener = listener;
+    }
+
+    @Override
+    public void dispose() {
+        if(changes != null) grid.stopTracking(changes);
+        scheduler.removeFrameListener(frameListener);
+    }
+
     /**
      * Triggered when a block is clicked. Call the attached listener.
      *
@@ -213,5 +396,8 @@ public class GameBoard extends GridPane {
         if (blockClickedListener != null) {
             blockClickedListener.blockClicked(block);
         }
+        if (cellClickedListener != null) {
+            cellClickedListener.cellClicked(block.getX(), block.getY());
+        }
     }
 }
@@ -6,38 +6,22 @@ import uk.ac.soton.comp1206.game.GamePiece;
 
 public class PieceBoard extends GameBoard{
 
-    public PieceBoard() {
-        super(3, 3, 100, 100);
-    }
-
-    public PieceBoard(int width, int height) {
-        super(3, 3, width, height);
+    public PieceBoard(int width, int height, AnimationScheduler scheduler) {
+        super(3, 3, width, height, scheduler);
     }
     private static final Logger logger = LogManager.getLogger(PieceBoard.class);
 
 
     protected void build() {
-        super.build();
         logger.info("Building piece board grid");
-
-        setGridLinesVisible(true);
-
-        for(var y = 0; y < 3; y++) {
-            for (var x = 0; x < 3; x++) {
-                createBlock(x,y);
-            }
-        }
+        super.build();
     }
 
     public void setPiece(GamePiece piece) {
         clearBoard();
 
-        for (int i = 0; i < piece.getBlocks().length; i++) {
-            for (int j = 0; j < piece.getBlocks()[0].length; j++) {
-                if (piece.getBlocks()[j][i] != 0) {
-                    grid.set(j,i,piece.getBlocks()[j][i]);
-                }
-            }
+        for (int cell = 0; cell < piece.getCellCount(); cell++) {
+            grid.set(1 + piece.getCellX(cell), 1 + piece.getCellY(cell), piece.getValue());
         }
     }
 
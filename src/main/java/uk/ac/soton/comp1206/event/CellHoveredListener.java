@@ -0,0 +1,15 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Cell Hovered listener is used to handle the event when a cell of a board is hovered, either by the mouse or by
+ * aiming with the keyboard. It passes the column and row of the cell, for boards that do not have a GameBlock per cell
+ */
+public interface CellHoveredListener {
+
+    /**
+     * Handle a cell hovered event
+     * @param x column of the cell
+     * @param y row of the cell
+     */
+    public void cellHovered(int x, int y);
+}
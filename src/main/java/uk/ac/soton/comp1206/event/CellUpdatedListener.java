@@ -0,0 +1,15 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * CellUpdatedListener is used for listening to the value of a cell in a Grid changing
+ */
+public interface CellUpdatedListener {
+
+    /**
+     * Handle a cell being updated
+     * @param x column of the cell
+     * @param y row of the cell
+     * @param value the new value
+     */
+    public void cellUpdated(int x, int y, int value);
+}
@@ -1,14 +1,16 @@
 package uk.ac.soton.comp1206.event;
 
+import uk.ac.soton.comp1206.game.LineClear;
+
 /**
- * LineClearedListener is used for listening to the timing of any lines are cleared
+ * LineClearedListener is used for listening to the timing of any lines are cleared. It is called once per placement,
+ * with every line cleared by that placement.
  */
 
 public interface LineClearedListener {
     /**
      * Handle event to set animation for fadeOut
-     * @param x send column to be cleared
-     * @param y send row to be cleared
+     * @param clear the lines and cells cleared
      */
-    public void lineCleared(int x, int y);
+    public void linesCleared(LineClear clear);
 }
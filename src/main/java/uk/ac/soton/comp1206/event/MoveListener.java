@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.MoveResult;
+
+/**
+ * The Move listener is used to handle everything that changed in a game as the result of a move, delivered together
+ * once the move is complete
+ */
+public interface MoveListener {
+
+    /**
+     * Handle the result of a move
+     * @param result the state of the game after the move and what changed
+     */
+    public void moveMade(MoveResult result);
+}
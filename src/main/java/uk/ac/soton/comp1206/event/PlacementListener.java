@@ -0,0 +1,15 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Placement listener is used to handle the outcome of trying to place the current piece on the board
+ */
+public interface PlacementListener {
+
+    /**
+     * Handle an attempt to place the current piece
+     * @param x column the piece was centred on
+     * @param y row the piece was centred on
+     * @param placed true if the piece was placed, false if it did not fit
+     */
+    public void placement(int x, int y, boolean placed);
+}
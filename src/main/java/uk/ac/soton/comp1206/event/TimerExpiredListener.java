@@ -0,0 +1,12 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * TimerExpiredListener is used for listening to the timer running out before a piece was placed
+ */
+public interface TimerExpiredListener {
+
+    /**
+     * Handle the timer for the current piece running out
+     */
+    public void timerExpired();
+}
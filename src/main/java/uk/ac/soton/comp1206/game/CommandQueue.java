@@ -0,0 +1,111 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A CommandQueue takes commands for a Game from any number of threads and applies them one at a time, so the game
+ * only ever has one writer.
+ *
+ * Submitting never takes a lock: commands are linked onto a lock-free multiple-producer single-consumer list, and
+ * whichever thread wins a compare-and-set on the drain flag becomes the owner for as long as there are commands
+ * waiting, applying every one in order. Other submitters simply leave their command for the owner. When the queue
+ * runs dry the owner reports the end of the batch, so changes can be published once for the whole batch.
+ */
+public class CommandQueue {
+
+    /**
+     * Applies a single command
+     */
+    public interface Handler {
+
+        /**
+         * Apply a command
+         * @param command kind of command
+         * @param x first argument of the command
+         * @param y second argument of the command
+         */
+        void apply(GameCommand command, int x, int y);
+    }
+
+    /**
+     * A submitted command, linked to the one submitted after it
+     */
+    private static class Node {
+        final GameCommand command;
+        final int x;
+        final int y;
+        volatile Node next;
+
+        Node(GameCommand command, int x, int y) {
+            this.command = command;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private final Handler handler;
+    private final Runnable batchEnd;
+
+    /**
+     * The most recently submitted node, swapped in by producers
+     */
+    private final AtomicReference<Node> head;
+
+    /**
+     * The last node taken by the owner, whose successor is the next command to apply
+     */
+    private volatile Node tail;
+
+    /**
+     * Set while a thread is applying commands
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * Create a new queue
+     * @param handler applies each command
+     * @param batchEnd called after each batch of commands has been applied
+     */
+    public CommandQueue(Handler handler, Runnable batchEnd) {
+        this.handler = handler;
+        this.batchEnd = batchEnd;
+        var stub = new Node(null, 0, 0);
+        this.head = new AtomicReference<>(stub);
+        this.tail = stub;
+    }
+
+    /**
+     * Submit a command, and apply it straight away unless another thread is already applying commands
+     * @param command kind of command
+     * @param x first argument of the command
+     * @param y second argument of the command
+     */
+    public void submit(GameCommand command, int x, int y) {
+        var node = new Node(command, x, y);
+        head.getAndSet(node).next = node;
+        drain();
+    }
+
+    /**
+     * Apply waiting commands if no other thread is doing so
+     */
+    private void drain() {
+        while(tail.next != null) {
+            if(!draining.compareAndSet(false, true)) return;
+            try {
+                boolean applied = false;
+                Node next;
+                while((next = tail.next) != null) {
+                    tail = next;
+                    applied = true;
+                    handler.apply(next.command, next.x, next.y);
+                }
+                if(applied) batchEnd.run();
+            } finally {
+                draining.set(false);
+            }
+            //A command may have been linked after the last check but before the flag was released
+        }
+    }
+}
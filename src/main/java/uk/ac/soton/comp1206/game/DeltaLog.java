@@ -0,0 +1,299 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+
+/**
+ * A DeltaLog records what each move changed in a Game, so moves can be undone and redone.
+ *
+ * Each entry holds the pieces, score, level, lives, multiplier and whether the game was over, both before and after the
+ * move, then the change in the totals and the cells the move filled and emptied along with their colours. The figures
+ * are kept whole rather than as changes because the timer can change lives and the multiplier between logged moves,
+ * and a change applied on top of those would leave them wrong. Everything is written as
+ * variable-length integers into one growing byte array, so a typical move takes around twenty bytes, with one int
+ * per entry to find where it starts. Undoing or redoing a move touches only the cells that move changed.
+ *
+ * Only moves that change the board are recorded. Rotating or swapping pieces and letting the timer run out are not
+ * moves of their own: undo goes back to how the game was before the last piece placed, lives included.
+ *
+ * Making a new move after undoing throws away the moves that could have been redone.
+ */
+public class DeltaLog {
+
+    /**
+     * The encoded entries
+     */
+    private byte[] bytes = new byte[1024];
+    private int length = 0;
+
+    /**
+     * Where each entry starts in the bytes
+     */
+    private int[] starts = new int[64];
+
+    /**
+     * The number of entries recorded, and the number of them currently applied to the game
+     */
+    private int entries = 0;
+    private int position = 0;
+
+    /**
+     * Where the next number will be read from while undoing or redoing
+     */
+    private int cursor;
+
+    /**
+     * The state of the game when the move being recorded began
+     */
+    private int pieces;
+    private int score;
+    private int level;
+    private int life;
+    private int multiplier;
+    private boolean over;
+    private int linesCleared;
+    private int piecesPlayed;
+
+    /**
+     * The cells filled and emptied by the move being recorded, packed as (index << 8 | colour)
+     */
+    private int[] filled = new int[16];
+    private int filledCount = 0;
+    private int[] emptied = new int[16];
+    private int emptiedCount = 0;
+
+    /**
+     * Start recording a move
+     * @param game game about to make the move
+     */
+    void begin(Game game) {
+        pieces = pieces(game);
+        score = game.score;
+        level = game.level;
+        life = game.life;
+        multiplier = game.multiplier;
+        over = game.over;
+        linesCleared = game.linesCleared;
+        piecesPlayed = game.piecesPlayed;
+        filledCount = 0;
+        emptiedCount = 0;
+    }
+
+    /**
+     * Record a cell filled by the move
+     * @param index cell index (y * cols + x)
+     * @param colour value written
+     */
+    void filled(int index, int colour) {
+        if(filledCount == filled.length) filled = Arrays.copyOf(filled, filledCount * 2);
+        filled[filledCount++] = index << 8 | colour;
+    }
+
+    /**
+     * Record a cell emptied by the move
+     * @param index cell index (y * cols + x)
+     * @param colour value the cell held
+     */
+    void emptied(int index, int colour) {
+        if(emptiedCount == emptied.length) emptied = Arrays.copyOf(emptied, emptiedCount * 2);
+        emptied[emptiedCount++] = index << 8 | colour;
+    }
+
+    /**
+     * Finish recording a move, adding an entry if it changed the board. The score only changes along with the board.
+     * @param game game that made the move
+     */
+    void end(Game game) {
+        if(filledCount == 0 && emptiedCount == 0) return;
+        int after = pieces(game);
+
+        //A new move replaces any moves that were undone
+        length = position < entries ? starts[position] : length;
+        entries = position;
+
+        if(entries == starts.length) starts = Arrays.copyOf(starts, entries * 2);
+        starts[entries++] = length;
+        position = entries;
+
+        write(pieces);
+        write(after);
+        write(score);
+        write(game.score);
+        write(level);
+        write(game.level);
+        write(life);
+        write(game.life);
+        write(multiplier);
+        write(game.multiplier);
+        write((over ? 1 : 0) | (game.over ? 2 : 0));
+        write(game.linesCleared - linesCleared);
+        write(game.piecesPlayed - piecesPlayed);
+        write(filledCount);
+        for(int i = 0; i < filledCount; i++) {
+            write(filled[i]);
+        }
+        write(emptiedCount);
+        for(int i = 0; i < emptiedCount; i++) {
+            write(emptied[i]);
+        }
+    }
+
+    /**
+     * Check whether there is a move to undo
+     * @return true if a move can be undone
+     */
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    /**
+     * Check whether there is an undone move to redo
+     * @return true if a move can be redone
+     */
+    public boolean canRedo() {
+        return position < entries;
+    }
+
+    /**
+     * Get the number of moves recorded
+     * @return moves that can be undone or redone
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Get the space taken by the recorded moves
+     * @return encoded bytes
+     */
+    public int byteSize() {
+        return length;
+    }
+
+    /**
+     * Put the game back as it was before the last applied move
+     * @param game game to change
+     * @return false if there was nothing to undo
+     */
+    boolean undo(Game game) {
+        if(!canUndo()) return false;
+        cursor = starts[--position];
+        int before = read();
+        read();
+        game.score = read();
+        read();
+        game.level = read();
+        read();
+        game.life = read();
+        read();
+        game.multiplier = read();
+        read();
+        game.over = (read() & 1) != 0;
+        game.linesCleared -= read();
+        game.piecesPlayed -= read();
+
+        int filledStart = cursor;
+        int count = read();
+        for(int i = 0; i < count; i++) {
+            read();
+        }
+        //Refill what was emptied, then empty what was filled, so a cell filled and cleared in one move ends empty
+        int emptiedCells = read();
+        for(int i = 0; i < emptiedCells; i++) {
+            int cell = read();
+            set(game, cell >>> 8, cell & 0xFF);
+        }
+        cursor = filledStart;
+        read();
+        for(int i = 0; i < count; i++) {
+            set(game, read() >>> 8, 0);
+        }
+
+        setPieces(game, before);
+        return true;
+    }
+
+    /**
+     * Make the next undone move again
+     * @param game game to change
+     * @return false if there was nothing to redo
+     */
+    boolean redo(Game game) {
+        if(!canRedo()) return false;
+        cursor = starts[position++];
+        read();
+        int after = read();
+        read();
+        game.score = read();
+        read();
+        game.level = read();
+        read();
+        game.life = read();
+        read();
+        game.multiplier = read();
+        game.over = (read() & 2) != 0;
+        game.linesCleared += read();
+        game.piecesPlayed += read();
+
+        int count = read();
+        for(int i = 0; i < count; i++) {
+            int cell = read();
+            set(game, cell >>> 8, cell & 0xFF);
+        }
+        int emptiedCells = read();
+        for(int i = 0; i < emptiedCells; i++) {
+            set(game, read() >>> 8, 0);
+        }
+
+        setPieces(game, after);
+        return true;
+    }
+
+    private void set(Game game, int index, int colour) {
+        game.grid.set(index % game.cols, index / game.cols, colour);
+    }
+
+    /**
+     * Pack both pieces with their rotations into one number
+     */
+    private static int pieces(Game game) {
+        return code(game.currentPiece) << 8 | code(game.followingPiece);
+    }
+
+    private static int code(GamePiece piece) {
+        return piece.getNumber() * GamePiece.ROTATIONS + piece.getRotation();
+    }
+
+    private static void setPieces(Game game, int pieces) {
+        int current = pieces >>> 8;
+        int following = pieces & 0xFF;
+        game.currentPiece = GamePiece.createPiece(current / GamePiece.ROTATIONS, current % GamePiece.ROTATIONS);
+        game.followingPiece = GamePiece.createPiece(following / GamePiece.ROTATIONS, following % GamePiece.ROTATIONS);
+    }
+
+    /**
+     * Append a non-negative number as a variable-length integer, seven bits per byte
+     */
+    private void write(int value) {
+        if(length + 5 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        while((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    /**
+     * Read a variable-length integer, moving the cursor past it
+     */
+    private int read() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[cursor++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+}
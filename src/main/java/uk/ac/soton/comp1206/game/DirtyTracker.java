@@ -0,0 +1,64 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A DirtyTracker collects the cells of a Grid changed since it was last drained, for one board that draws the grid
+ * once per frame. It is made with {@link Grid#trackDirty}, and each board tracking the same grid has its own, so one
+ * board draining its changes never takes them from another.
+ *
+ * The changed cells are kept as a mask laid out like the chunks of the grid, along with the range of chunks that hold
+ * any marks, so draining a few changes on a large board only visits the chunks they fall in.
+ */
+public class DirtyTracker {
+
+    /**
+     * Cells changed since the last drain. Every mark is in the chunks from the first up to the last.
+     */
+    private final long[] dirty;
+    private int first = Integer.MAX_VALUE;
+    private int last = 0;
+
+    /**
+     * Run when a change marks the mask after it was drained
+     */
+    private final Runnable listener;
+
+    /**
+     * Create a new DirtyTracker
+     * @param chunks number of chunks in the grid
+     * @param listener listener to run when the mask stops being clean, or null for none
+     */
+    DirtyTracker(int chunks, Runnable listener) {
+        this.dirty = new long[chunks];
+        this.listener = listener;
+    }
+
+    /**
+     * Mark a cell as changed
+     * @param chunk index of the chunk holding the cell
+     * @param bit bit of the cell within the chunk
+     */
+    void mark(int chunk, long bit) {
+        boolean clean = first > last;
+        dirty[chunk] |= bit;
+        first = Math.min(first, chunk);
+        last = Math.max(last, chunk);
+        if(clean && listener != null) listener.run();
+    }
+
+    /**
+     * Take every cell changed since the last drain, leaving the mask clean. Should be called on the thread that changes
+     * the grid.
+     * @param into mask laid out like the chunks of the grid, which the changed cells are added to
+     * @return false if no cell has changed
+     */
+    public boolean drain(long[] into) {
+        if(first > last) return false;
+        for(int chunk = first; chunk <= last; chunk++) {
+            into[chunk] |= dirty[chunk];
+            dirty[chunk] = 0;
+        }
+        first = Integer.MAX_VALUE;
+        last = 0;
+        return true;
+    }
+}
@@ -1,26 +1,30 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.application.Platform;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.Multimedia;
-import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.event.EndsGameListener;
 import uk.ac.soton.comp1206.event.GameLoopListener;
 import uk.ac.soton.comp1206.event.LineClearedListener;
+import uk.ac.soton.comp1206.event.MoveListener;
 import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.event.PlacementListener;
+import uk.ac.soton.comp1206.event.TimerExpiredListener;
 
-import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
- * The Game class handles the main logic, state and properties of the TetrECS game. Methods to manipulate the game state
- * and to handle actions made by the player should take place inside this class.
+ * The Game class handles the main logic and state of the TetrECS game. Methods to manipulate the game state and to
+ * handle actions made by the player should take place inside this class.
+ *
+ * The Game is plain Java: it holds its state as primitives and reports changes through listeners, with no UI or audio
+ * side effects, so it can run without the JavaFX toolkit. Use an ObservableGame to bind the state to the UI.
+ *
+ * A running game is driven by submitting commands: player input from the UI and timer expiries from the clock all go
+ * through {@link #submit}, and are applied one at a time by a single owner, so the game is never changed by two threads
+ * at once. Changes to the score, level, lives, multiplier and pieces are gathered up and published once per batch of
+ * commands, as a single MoveResult.
  */
 public class Game{
 
@@ -30,50 +34,220 @@ public class Game{
 
     //The grid model linked to the game
     protected final Grid grid;
-    Random random = new Random();
+    final Random random;
+
+    /**
+     * The seed the pieces are dealt from
+     */
+    private final long seed;
+
     GamePiece currentPiece;
     GamePiece followingPiece;
 
-    protected ScheduledFuture<?> loop;
-    protected ScheduledExecutorService time;
+    /**
+     * The countdown for placing the current piece, on the clock the game was started with
+     */
+    protected GameClock.Timer loop;
 
-    Multimedia multimedia = new Multimedia();
     protected LineClearedListener lineClearedListener = null;
     protected GameLoopListener gameLoopListener = null;
     protected EndsGameListener endsGameListener = null;
+    protected TimerExpiredListener timerExpiredListener = null;
+    protected PlacementListener placementListener = null;
+    private final List<MoveListener> moveListeners = new ArrayList<>();
+
+    protected int score = 0;
+    protected int level = 0;
+    protected int life = 3;
+    protected int multiplier = 1;
+
+    /**
+     * Totals over the whole game, for reporting
+     */
+    protected int linesCleared = 0;
+    protected int piecesPlayed = 0;
+    protected boolean over = false;
 
-    protected final IntegerProperty score = new SimpleIntegerProperty(0);
-    protected final IntegerProperty level = new SimpleIntegerProperty(0);
-    protected final IntegerProperty life = new SimpleIntegerProperty(3);
-    protected final IntegerProperty multiplier = new SimpleIntegerProperty(1);
+    /**
+     * Commands waiting to be applied to this game
+     */
+    private final CommandQueue commands = new CommandQueue(this::apply, this::publish);
+
+    /**
+     * Set when the score, level, lives or multiplier, or the pieces, have changed since they were last published
+     */
+    private boolean stateChanged = false;
+    private boolean piecesChanged = false;
 
     /**
-     * Create a new game with the specified rows and columns. Creates a corresponding grid model.
+     * The moves made, for undo and redo, or null when undo is not enabled
+     */
+    private DeltaLog history;
+
+    /**
+     * Every command applied, for replaying the game, or null when recording is not enabled
+     */
+    private MoveRecording recording;
+
+    /**
+     * Where the current piece can be placed, with the piece and board it was worked out for
+     */
+    private long[] placementMask;
+    private GamePiece placementPiece;
+    private long placementHash;
+
+    /**
+     * Create a new game with the specified rows and columns, dealt from a seed picked at random. Creates a
+     * corresponding grid model.
      * @param cols number of columns
      * @param rows number of rows
      */
     public Game(int cols, int rows) {
+        this(cols, rows, new Random().nextLong());
+    }
+
+    /**
+     * Create a new game with the specified rows and columns whose pieces are generated from the given seed, so the
+     * same seed always deals the same pieces.
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed for piece generation
+     */
+    public Game(int cols, int rows, long seed) {
         this.cols = cols;
         this.rows = rows;
+        this.seed = seed;
+        this.random = new Random(seed);
 
         //Create a new grid model to represent the game state
         this.grid = new Grid(cols,rows);
         this.currentPiece = spawnPiece();
-
-        time = Executors.newSingleThreadScheduledExecutor();
     }
 
-    public void start() {
+    /**
+     * Start the game and its timer. The timer counts down on the given clock, and timer expiries run on the clock's
+     * dispatcher.
+     * @param clock clock to time the game with
+     */
+    public void start(GameClock clock) {
         logger.info("Starting game");
         initialiseGame();
 
-        loop = time.schedule(this::gameLoop, getTimerDelay(),TimeUnit.MILLISECONDS);
+        loop = clock.schedule(() -> submit(GameCommand.TIMER, 0, 0), getTimerDelay());
 
         gameLoopListener();
+        publish();
+    }
+
+    /**
+     * Submit a command to this game. It is applied straight away, unless another thread is applying commands, in
+     * which case that thread applies it next. Safe to call from any thread.
+     * @param command kind of command
+     * @param x first argument, or 0 if the command has none
+     * @param y second argument, or 0 if the command has none
+     */
+    public void submit(GameCommand command, int x, int y) {
+        commands.submit(command, x, y);
+    }
+
+    /**
+     * Apply a single command, as the only writer of this game
+     */
+    private void apply(GameCommand command, int x, int y) {
+        //A move made while the expiry was waiting restarted the timer, so the expiry no longer applies. Without a
+        //clock, a timer command always runs the timer out.
+        if(command == GameCommand.TIMER && loop != null && !loop.isExpired()) return;
+        if(recording != null) record(command, x, y);
+
+        if(command == GameCommand.UNDO || command == GameCommand.REDO) {
+            if(history == null) return;
+            if(command == GameCommand.UNDO ? history.undo(this) : history.redo(this)) {
+                stateChanged = true;
+                piecesChanged = true;
+                if(loop != null) loop.reset(getTimerDelay());
+                gameLoopListener();
+            }
+            return;
+        }
+
+        if(history != null) history.begin(this);
+        switch (command) {
+            case PLACE -> blockClicked(x, y);
+            case ROTATE -> rotateCurrentPiece(x);
+            case SWAP -> swapCurrentPiece();
+            case SKIP -> nextPiece();
+            case TIMER -> gameLoop();
+        }
+        if(history != null) history.end(this);
+    }
+
+    /**
+     * Turn on recording of moves so they can be undone and redone with the UNDO and REDO commands
+     */
+    public void enableUndo() {
+        if(history == null) history = new DeltaLog();
+    }
+
+    /**
+     * Record a command about to be applied, leaving out those that cannot change the game
+     */
+    private void record(GameCommand command, int x, int y) {
+        if(command == GameCommand.PLACE && (x < 0 || y < 0 || x >= cols || y >= rows)) return;
+        if((command == GameCommand.UNDO || command == GameCommand.REDO) && history == null) return;
+        recording.add(command, x, y);
+    }
+
+    /**
+     * Turn on recording of every command applied, so the game can be replayed exactly with
+     * {@link MoveRecording#replay}. Must be called before the first command; a replay turns undo on from the start if
+     * any undo or redo was recorded.
+     */
+    public void enableRecording() {
+        if(recording == null) recording = new MoveRecording(cols, rows, seed);
+    }
+
+    /**
+     * Get the recording of every command applied
+     * @return the recording, or null if recording is not enabled
+     */
+    public MoveRecording getRecording() {
+        return recording;
+    }
+
+    /**
+     * Get the seed the pieces are dealt from
+     * @return seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the record of moves made
+     * @return the moves, or null if undo is not enabled
+     */
+    public DeltaLog getHistory() {
+        return history;
+    }
+
+    /**
+     * Tell the listeners about changes since the last batch of commands, all at once
+     */
+    private void publish() {
+        if(!stateChanged && !piecesChanged) return;
+        var result = new MoveResult(score, level, life, multiplier, currentPiece, followingPiece, stateChanged,
+                piecesChanged);
+        stateChanged = false;
+        piecesChanged = false;
+
+        if(result.isPiecesChanged()) notifyNextPieceListeners(currentPiece);
+        for(MoveListener listener : moveListeners) {
+            listener.moveMade(result);
+        }
     }
 
     public GamePiece spawnPiece(){
-        return GamePiece.createPiece(random.nextInt(15), random.nextInt(4)); //bound = given number??
+        return GamePiece.createPiece(random.nextInt(GamePiece.PIECES), random.nextInt(GamePiece.ROTATIONS));
     }
 
     //ここからjp
@@ -99,8 +273,28 @@ public class Game{
         if(gameLoopListener != null) gameLoopListener.setOnGameLoop(getTimerDelay());
     }
 
+    public void setOnTimerExpired(TimerExpiredListener timerExpiredListener) {
+        this.timerExpiredListener = timerExpiredListener;
+    }
+
+    /**
+     * Set the listener told whether each attempt to place the current piece succeeded
+     * @param placementListener listener to set
+     */
+    public void setOnPlacement(PlacementListener placementListener) {
+        this.placementListener = placementListener;
+    }
+
+    /**
+     * Add a listener to be given the result of every move, once the move is complete
+     * @param listener listener to add
+     */
+    public void registerMoveListener(MoveListener listener) {
+        moveListeners.add(listener);
+    }
+
     public void endsTimer(){
-        this.time.shutdownNow();
+        if(loop != null) loop.cancel();
     }
 
     public void EndsGame(EndsGameListener endsGameListener){
@@ -109,8 +303,9 @@ public class Game{
 
     public void gameOver(){
         logger.info("Game over");
+        over = true;
         if(endsGameListener != null){
-            Platform.runLater(() -> endsGameListener.gameOver());
+            endsGameListener.gameOver();
         }
     }
 
@@ -122,10 +317,7 @@ public class Game{
         currentPiece = followingPiece;
 
         followingPiece = spawnPiece();
-
-        for(NextPieceListener listener : nextPieceListeners){
-            listener.nextPiece(currentPiece,followingPiece);
-        }
+        piecesChanged = true;
     }
 
     /**
@@ -135,8 +327,7 @@ public class Game{
         var changedPiece = currentPiece;
         currentPiece = followingPiece;
         followingPiece = changedPiece;
-        notifyNextPieceListeners(currentPiece);
-        multimedia.playAudio("/sounds/pling.wav");
+        piecesChanged = true;
     }
 
     /**
@@ -145,7 +336,8 @@ public class Game{
      */
     public void rotateCurrentPiece(int rotation){
         logger.info("Rotate piece");
-        currentPiece.rotate(rotation);
+        currentPiece = currentPiece.rotate(rotation);
+        piecesChanged = true;
     }
 
     /**
@@ -167,13 +359,17 @@ public class Game{
     public void initialiseGame() {
         logger.info("Initialising game");
 
-        this.score.set(0);
-        this.level.set(0);
-        this.life.set(3);
-        this.multiplier.set(1);
+        this.score = 0;
+        this.level = 0;
+        this.life = 3;
+        this.multiplier = 1;
+        this.linesCleared = 0;
+        this.piecesPlayed = 0;
+        this.over = false;
+        stateChanged = true;
 
         followingPiece = spawnPiece();
-        notifyNextPieceListeners(currentPiece);
+        piecesChanged = true;
     }
 
     /**
@@ -181,90 +377,113 @@ public class Game{
      * @return max time to play each piece
      */
     public int getTimerDelay(){
-        return Math.max(12000-500*level.get(), 2500);
+        return Math.max(12000-500*level, 2500);
     }
 
     /**
      * Handle game loop
      */
     public void gameLoop(){
-        multimedia.playAudio("/sounds/fail.wav");
-        if(life.get() > 0){
-            life.set(life.get()-1);
-            multiplier.set(1);
+        loseLife();
+        checkMoves();
+    }
+
+    /**
+     * Lose a life and move on to the next piece, or end the game if there are no lives left
+     */
+    private void loseLife() {
+        if(over) return;
+        if(timerExpiredListener != null) timerExpiredListener.timerExpired();
+        if(life > 0){
+            life--;
+            multiplier = 1;
+            stateChanged = true;
             logger.info("inside loop, life: "+getLife());
             logger.info(getMultiplier());
 
-        }else gameOver();
+        }else {
+            gameOver();
+            return;
+        }
         nextPiece();
 
         gameLoopListener();
 
-        loop = time.schedule(this::gameLoop, getTimerDelay(),TimeUnit.MILLISECONDS);
+        if(loop != null) loop.reset(getTimerDelay());
     }
 
 
     /**
      * Handle what should happen when a particular block is clicked
-     * @param gameBlock the block that was clicked
+     * @param x column of the block that was clicked
+     * @param y row of the block that was clicked
+     * @return true if the current piece was placed there
      */
-    public void blockClicked(GameBlock gameBlock) {
-        //Get the position of this block
-        int x = gameBlock.getX();
-        int y = gameBlock.getY();
-
+    public boolean blockClicked(int x, int y) {
         if(getGrid().canPlayPiece(currentPiece,x,y)){
-            multimedia.playAudio("/sounds/place.wav");
             grid.playPiece(currentPiece,x,y);
+            piecesPlayed++;
+            if(history != null) {
+                for(int cell = 0; cell < currentPiece.getCellCount(); cell++) {
+                    int index = (y + currentPiece.getCellY(cell)) * cols + x + currentPiece.getCellX(cell);
+                    history.filled(index, currentPiece.getValue());
+                }
+            }
 
-            afterPiece();
+            afterPiece(currentPiece,x,y);
             nextPiece();
 
-            loop.cancel(false);
-            loop = time.schedule(this::gameLoop, getTimerDelay(),TimeUnit.MILLISECONDS);
+            if(loop != null) loop.reset(getTimerDelay());
             gameLoopListener();
+            if(placementListener != null) placementListener.placement(x, y, true);
+            checkMoves();
+            return true;
         }
+        if(placementListener != null) placementListener.placement(x, y, false);
+        return false;
     }
 
     /**
-     * Delete lines if any lines are filled with blocks
+     * Check whether either the current or the following piece can still be placed anywhere, in any rotation
+     * @return true if there is at least one legal move, swapping if needed
      */
-    public void afterPiece(){
-        int line = 0;
-        Set<Integer> row = new HashSet<>();
-        Set<Integer> col = new HashSet<>();
-
-        for(int x = 0; x < getGrid().getCols(); x++){
-            boolean colFull = true;
-            for(int y = 0; y < getGrid().getRows(); y++){
-                if(getGrid().get(x,y) == 0){
-                    colFull = false;
-                    break;
-                }
-            }
-            if(colFull){
-                line++;
-                col.add(x);
-            }
+    public boolean hasMoves() {
+        for(int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            if(grid.hasPlacement(currentPiece.rotate(rotation))) return true;
+            if(grid.hasPlacement(followingPiece.rotate(rotation))) return true;
         }
-        for(int y = 0; y < getGrid().getRows(); y++){
-            boolean rowFull = true;
-            for(int x = 0; x < getGrid().getCols(); x++){
-                if(getGrid().get(x,y) == 0){
-                    rowFull = false;
-                    break;
-                }
-            }
-            if(rowFull){
-                line++;
-                row.add(y);
-            }
+        return false;
+    }
+
+    /**
+     * If neither piece can be placed, waiting for the timer cannot help, so lose a life straight away, and keep losing
+     * them until a piece can be placed or the game ends
+     */
+    private void checkMoves() {
+        while(!over && !hasMoves()) {
+            logger.info("No moves left");
+            loseLife();
         }
+    }
+
+    /**
+     * Delete lines if any lines are filled with blocks. Only the rows and columns covered by the piece just placed can
+     * have become full, so only those are checked.
+     * @param piece the piece that was placed
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     */
+    public void afterPiece(GamePiece piece, int x, int y){
+        int lines = getGrid().fullLines(piece, x, y);
+        int rowLines = Integer.bitCount(lines & Grid.ROW_LINES);
+        int colLines = Integer.bitCount(lines & Grid.COLUMN_LINES);
+        int line = rowLines + colLines;
 
         logger.info("lines to clear: " + line);
-        int blocks = (5*line) - (row.size()*col.size());
+        int blocks = blocksIn(lines);
 
         if (line != 0) {
+            linesCleared += line;
             score(line, blocks);
             setMultiplier(getMultiplier() + 1);
         } else {
@@ -272,26 +491,35 @@ public class Game{
         }
 
         if (line > 0) {
+            var cells = new int[blocks];
+            int cell = 0;
             //clear row
-            for (int r : row) {
+            for (int i = 0; i < 3; i++) {
+                if ((lines & (1 << i)) == 0) continue;
+                int r = y - 1 + i;
                 logger.info("Clear Line");
-                for (int i = 0; i < getGrid().getCols(); i++) {
-                    getGrid().set(i, r, 0);
-                    if(lineClearedListener != null) {
-                        lineClearedListener.lineCleared(i,r); //Calls Listener
-                    }
+                for (int c = 0; c < getGrid().getCols(); c++) {
+                    if(history != null) history.emptied(r * cols + c, grid.get(c, r));
+                    getGrid().set(c, r, 0);
+                    cells[cell++] = c << 16 | r;
                 }
             }
-            //clear colum
-            for (int c : col) {
+            //clear colum, skipping the cells already cleared with a row
+            for (int i = 0; i < 3; i++) {
+                if ((lines & (1 << (3 + i))) == 0) continue;
+                int c = x - 1 + i;
                 logger.info("Clear Line");
-                for (int i = 0; i < getGrid().getRows(); i++) {
-                    getGrid().set(c, i, 0);
-                    if(lineClearedListener != null) {
-                        lineClearedListener.lineCleared(c,i); //Calls Listener
-                    }
+                for (int r = 0; r < getGrid().getRows(); r++) {
+                    int row = r - y + 1;
+                    if (row >= 0 && row < 3 && (lines & (1 << row)) != 0) continue;
+                    if(history != null) history.emptied(r * cols + c, grid.get(c, r));
+                    getGrid().set(c, r, 0);
+                    cells[cell++] = c << 16 | r;
                 }
             }
+            if(lineClearedListener != null) {
+                lineClearedListener.linesCleared(new LineClear(x, y, lines, cells)); //Calls Listener
+            }
         }
     }
 
@@ -323,48 +551,136 @@ public class Game{
         return currentPiece;
     }
 
-    public int getScore(){
-        return score.get();
+    public GamePiece getFollowingPiece() {
+        return followingPiece;
     }
 
-    public IntegerProperty scoreProperty(){
+    /**
+     * List every legal placement of the current piece in every rotation, and optionally of the following piece too
+     * @param includeSwap whether to include placements of the following piece after a swap
+     * @return legal placements
+     */
+    public List<Placement> legalPlacements(boolean includeSwap) {
+        var placements = new ArrayList<Placement>();
+        addPlacements(placements, currentPiece, false);
+        if(includeSwap) addPlacements(placements, followingPiece, true);
+        return placements;
+    }
+
+    private void addPlacements(List<Placement> placements, GamePiece piece, boolean swap) {
+        for(int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            var rotated = piece.rotate(rotation);
+            for(int y = 0; y < rows; y++) {
+                for(int x = 0; x < cols; x++) {
+                    if(grid.fits(rotated, x, y)) placements.add(new Placement(x, y, rotation, swap));
+                }
+            }
+        }
+    }
+
+    /**
+     * Work out which lines would clear if the current piece were placed centred on the given block, without placing
+     * it. Nothing in the grid changes and no listeners are called.
+     * @param x column
+     * @param y row
+     * @return line mask as from {@link Grid#fullLines}, or -1 if the piece cannot be placed there
+     */
+    public int previewLines(int x, int y) {
+        if(!grid.inMask(getPlacementMask(), x, y)) return -1;
+        return grid.linesIfPlayed(currentPiece, x, y);
+    }
+
+    /**
+     * Work out the points clearing the given lines would score at the current multiplier
+     * @param lines line mask as from {@link #previewLines}
+     * @return points that would be scored
+     */
+    public int previewPoints(int lines) {
+        int line = Integer.bitCount(lines & (Grid.ROW_LINES | Grid.COLUMN_LINES));
+        return line * blocksIn(lines) * 10 * getMultiplier();
+    }
+
+    /**
+     * Count the blocks in the given lines, counting blocks where a row and column cross only once
+     * @param lines line mask
+     * @return number of blocks
+     */
+    private int blocksIn(int lines) {
+        int rowLines = Integer.bitCount(lines & Grid.ROW_LINES);
+        int colLines = Integer.bitCount(lines & Grid.COLUMN_LINES);
+        return (rowLines * grid.getCols()) + (colLines * grid.getRows()) - (rowLines * colLines);
+    }
+
+    /**
+     * Get every cell the current piece, in its current rotation, can be centred on. The mask is worked out again
+     * whenever the board, piece or rotation has changed since it was last asked for.
+     * @return mask of valid centres, tested with {@link Grid#inMask}
+     */
+    public long[] getPlacementMask() {
+        if(placementMask == null || placementPiece != currentPiece || placementHash != grid.getHash()) {
+            placementMask = grid.placementMask(currentPiece);
+            placementPiece = currentPiece;
+            placementHash = grid.getHash();
+        }
+        return placementMask;
+    }
+
+    /**
+     * Carry out a placement: swap if needed, rotate, then place the current piece
+     * @param placement placement to make
+     * @return true if the piece was placed
+     */
+    public boolean play(Placement placement) {
+        if(placement.isSwap()) swapCurrentPiece();
+        if(placement.getRotation() != 0) rotateCurrentPiece(placement.getRotation());
+        return blockClicked(placement.getX(), placement.getY());
+    }
+
+    /**
+     * Check whether the game has ended
+     * @return true once the game is over
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    public int getPiecesPlayed() {
+        return piecesPlayed;
+    }
+
+    public int getScore(){
         return score;
     }
 
     public void setScore(int score){
-        this.score.set(score);
+        this.score = score;
+        stateChanged = true;
     }
 
     public int getLevel(){
-        return level.get();
-    }
-
-    public IntegerProperty levelProperty(){
         return level;
     }
 
     public void setLevel(int level){
-        this.level.set(level);
+        this.level = level;
+        stateChanged = true;
     }
 
     public int getLife(){
-        return life.get();
-    }
-
-    public IntegerProperty lifeProperty(){
         return life;
     }
 
     public int getMultiplier(){
-        return multiplier.get();
-    }
-
-    public IntegerProperty multiplierProperty(){
         return multiplier;
     }
 
     public void setMultiplier(int multiplier){
-        this.multiplier.set(multiplier);
+        this.multiplier = multiplier;
+        stateChanged = true;
     }
 
     public int[][] getCurrentPieceBlocks() {
@@ -0,0 +1,259 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The GameClock keeps the time for every running Game from a single thread, instead of a thread per game.
+ *
+ * Time on the clock is read from System.nanoTime, and can be paused, resumed and sped up or slowed down with a time
+ * scale. Each game holds one Timer which it resets after every move. When a timer runs out its task is handed to the
+ * dispatcher given to the clock, so timer expiries always arrive on a known thread: the UI dispatches with
+ * Platform::runLater so expiries run on the JavaFX Application Thread alongside the player's input.
+ */
+public class GameClock {
+
+    private static final Logger logger = LogManager.getLogger(GameClock.class);
+
+    /**
+     * Runs the tasks of expired timers
+     */
+    private final Executor dispatcher;
+
+    /**
+     * Timers that are counting down. Guarded by this clock.
+     */
+    private final List<Timer> timers = new ArrayList<>();
+
+    /**
+     * Clock time in nanoseconds at the moment the time scale or pause state last changed, and the real time then
+     */
+    private long baseTime = 0;
+    private long baseReal = System.nanoTime();
+
+    /**
+     * Clock nanoseconds that pass per real nanosecond
+     */
+    private double timeScale = 1;
+
+    private boolean paused = false;
+
+    /**
+     * The thread counting down the timers, started when the first timer is scheduled
+     */
+    private Thread thread;
+
+    /**
+     * Create a new clock
+     * @param dispatcher executor to run the tasks of expired timers on
+     */
+    public GameClock(Executor dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * A countdown on a GameClock. A timer can be reset any number of times and only runs its task when it expires
+     * without having been reset or cancelled in the meantime.
+     */
+    public class Timer {
+
+        private final Runnable task;
+
+        /**
+         * Clock time at which this timer runs out
+         */
+        private long deadline;
+
+        /**
+         * Bumped on every reset or cancel, so an expiry already handed to the dispatcher can tell it is stale
+         */
+        private long generation;
+
+        /**
+         * Set when this timer runs out, until it is next reset or cancelled
+         */
+        private boolean expired;
+
+        private Timer(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Restart the countdown
+         * @param delay milliseconds of clock time until the timer runs out
+         */
+        public void reset(long delay) {
+            synchronized (GameClock.this) {
+                generation++;
+                expired = false;
+                deadline = now() + delay * 1_000_000L;
+                if(!timers.contains(this)) timers.add(this);
+                ensureRunning();
+                GameClock.this.notifyAll();
+            }
+        }
+
+        /**
+         * Stop the countdown, so the task does not run
+         */
+        public void cancel() {
+            synchronized (GameClock.this) {
+                generation++;
+                expired = false;
+                timers.remove(this);
+            }
+        }
+
+        /**
+         * Check whether this timer has run out and not been reset or cancelled since. A task that is queued up rather
+         * than run straight away can use this to tell whether it still applies.
+         * @return true if the timer has run out
+         */
+        public boolean isExpired() {
+            synchronized (GameClock.this) {
+                return expired;
+            }
+        }
+
+        /**
+         * Run the task if the timer has not been reset or cancelled since the given generation expired
+         */
+        private void expire(long expired) {
+            synchronized (GameClock.this) {
+                if(expired != generation) return;
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * Start a new timer
+     * @param task task to run when the timer runs out
+     * @param delay milliseconds of clock time until the timer runs out
+     * @return the timer, to reset or cancel
+     */
+    public Timer schedule(Runnable task, long delay) {
+        var timer = new Timer(task);
+        timer.reset(delay);
+        return timer;
+    }
+
+    /**
+     * Get the time on this clock
+     * @return nanoseconds of clock time
+     */
+    public synchronized long now() {
+        if(paused) return baseTime;
+        return baseTime + (long) ((System.nanoTime() - baseReal) * timeScale);
+    }
+
+    /**
+     * Stop time on this clock, so no timers run out until it is resumed
+     */
+    public synchronized void pause() {
+        if(paused) return;
+        rebase();
+        paused = true;
+        logger.info("Clock paused");
+    }
+
+    /**
+     * Carry on counting after a pause
+     */
+    public synchronized void resume() {
+        if(!paused) return;
+        rebase();
+        paused = false;
+        notifyAll();
+        logger.info("Clock resumed");
+    }
+
+    /**
+     * Check whether this clock is paused
+     * @return true if time is stopped
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Change how fast time passes on this clock
+     * @param timeScale clock seconds per real second, for example 1000 to run timers a thousand times faster
+     */
+    public synchronized void setTimeScale(double timeScale) {
+        if(!(timeScale > 0)) throw new IllegalArgumentException("Time scale must be positive: " + timeScale);
+        rebase();
+        this.timeScale = timeScale;
+        notifyAll();
+    }
+
+    /**
+     * Get how fast time passes on this clock
+     * @return clock seconds per real second
+     */
+    public synchronized double getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Start counting the current clock time from now, before the scale or pause state changes
+     */
+    private void rebase() {
+        baseTime = now();
+        baseReal = System.nanoTime();
+    }
+
+    private void ensureRunning() {
+        if(thread != null) return;
+        thread = new Thread(this::run, "game-clock");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Wait for the next timer to run out and dispatch it, for as long as the program runs
+     */
+    private synchronized void run() {
+        var expired = new ArrayList<Timer>();
+        var generations = new ArrayList<Long>();
+        while(true) {
+            try {
+                long now = now();
+                long next = Long.MAX_VALUE;
+                for(var timer : timers) {
+                    if(timer.deadline <= now) {
+                        timer.expired = true;
+                        expired.add(timer);
+                        generations.add(timer.generation);
+                    } else {
+                        next = Math.min(next, timer.deadline);
+                    }
+                }
+                timers.removeAll(expired);
+
+                for(int i = 0; i < expired.size(); i++) {
+                    var timer = expired.get(i);
+                    long generation = generations.get(i);
+                    dispatcher.execute(() -> timer.expire(generation));
+                }
+                expired.clear();
+                generations.clear();
+
+                if(paused || next == Long.MAX_VALUE) {
+                    wait();
+                } else {
+                    //Convert the clock time left into real time, rounding up to a whole millisecond
+                    long real = (long) Math.ceil((next - now) / timeScale / 1_000_000);
+                    wait(Math.max(1, real));
+                }
+            } catch (InterruptedException e) {
+                logger.info("Clock stopped");
+                return;
+            }
+        }
+    }
+}
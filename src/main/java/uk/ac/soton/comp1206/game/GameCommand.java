@@ -0,0 +1,42 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The kinds of command that can be submitted to a Game. Every change to a running game arrives as one of these.
+ */
+public enum GameCommand {
+
+    /**
+     * Place the current piece centred on a block, given as x and y
+     */
+    PLACE,
+
+    /**
+     * Rotate the current piece, by the number of clockwise rotations given as x
+     */
+    ROTATE,
+
+    /**
+     * Swap the current and following pieces
+     */
+    SWAP,
+
+    /**
+     * Discard the current piece and move on to the next
+     */
+    SKIP,
+
+    /**
+     * The timer for the current piece has run out
+     */
+    TIMER,
+
+    /**
+     * Take back the last move, when undo is enabled
+     */
+    UNDO,
+
+    /**
+     * Make the last move taken back again, when undo is enabled
+     */
+    REDO
+}
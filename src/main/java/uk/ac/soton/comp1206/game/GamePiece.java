@@ -3,6 +3,9 @@ package uk.ac.soton.comp1206.game;
 /**
  * Instances of GamePiece Represents the model of a specific Game Piece with it's block makeup.
  *
+ * GamePieces are immutable. Every piece in every rotation is built once into a shared table, so creating or rotating a
+ * piece only looks up another entry and never allocates. Instances can be freely shared between games and threads.
+ *
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by it's
  * number.
  */
@@ -13,10 +16,50 @@ public class GamePiece {
      */
     public static final int PIECES = 15;
 
+    /**
+     * The number of distinct rotations of each piece
+     */
+    public static final int ROTATIONS = 4;
+
+    /**
+     * Every piece in every rotation, indexed by piece number then rotation
+     */
+    private static final GamePiece[][] TABLE = new GamePiece[PIECES][ROTATIONS];
+
+    static {
+        String[] names = {"Line", "C", "Plus", "Dot", "Square", "L", "J", "S", "Z", "T", "X", "Corner",
+                "Inverse Corner", "Diagonal", "Double"};
+        int[][][] shapes = {
+                {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}},
+                {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}},
+                {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}},
+                {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}},
+                {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}},
+                {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}},
+                {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}},
+                {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}},
+                {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}},
+                {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}},
+                {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}},
+                {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}},
+                {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}},
+                {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}},
+                {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}}
+        };
+
+        for(int piece = 0; piece < PIECES; piece++) {
+            int[][] blocks = shapes[piece];
+            for(int rotation = 0; rotation < ROTATIONS; rotation++) {
+                TABLE[piece][rotation] = new GamePiece(names[piece], blocks, piece, rotation);
+                blocks = rotate(blocks);
+            }
+        }
+    }
+
     /**
      * The 2D grid representation of the shape of this piece
      */
-    private int[][] blocks;
+    private final int[][] blocks;
 
     /**
      * The value of this piece
@@ -29,125 +72,134 @@ public class GamePiece {
     private final String name;
 
     /**
-     * Create a new GamePiece of the specified piece number
-     * @param piece piece number
-     * @return the created GamePiece
+     * The piece number and rotation of this entry in the table
      */
-    public static GamePiece createPiece(int piece) {
-        switch (piece) {
-            case 0 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Line", blocks, 1);
-            }
-
-            case 1 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
-                return new GamePiece("C", blocks, 2);
-            }
-
-            case 2 -> {
-                int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
-                return new GamePiece("Plus", blocks, 3);
-            }
+    private final int number;
+    private final int rotation;
 
-            case 3 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Dot", blocks, 4);
-            }
-
-            case 4 -> {
-                int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Square", blocks, 5);
-            }
-
-            case 5 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
-                return new GamePiece("L", blocks, 6);
-            }
-
-            case 6 -> {
-                int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("J", blocks, 7);
-            }
-
-            case 7 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
-                return new GamePiece("S", blocks, 8);
-            }
-
-            case 8 -> {
-                int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Z", blocks, 9);
-            }
-
-            case 9 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("T", blocks, 10);
-            }
-
-            case 10 -> {
-                int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
-                return new GamePiece("X", blocks, 11);
-            }
-
-            case 11 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("Corner", blocks, 12);
-            }
+    /**
+     * The column and row offsets of each occupied cell from the centre of the piece
+     */
+    private final int[] cellX;
+    private final int[] cellY;
 
-            case 12 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Inverse Corner", blocks, 13);
-            }
+    /**
+     * The number of occupied cells in each row and each column of the 3x3 block makeup
+     */
+    private final int[] rowCells = new int[3];
+    private final int[] colCells = new int[3];
 
-            case 13 -> {
-                int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
-                return new GamePiece("Diagonal", blocks, 14);
-            }
+    /**
+     * The occupied cells of this piece as a bitmask relative to the top left of its bounding box, using the same
+     * 8-cell stride as the chunks of a Grid (bit = x + 8 * y)
+     */
+    private final long mask;
 
-            case 14 -> {
-                int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Double", blocks, 15);
-            }
-        }
+    /**
+     * The bounding box of the occupied cells within the 3x3 block makeup
+     */
+    private final int minX;
+    private final int minY;
+    private final int width;
+    private final int height;
 
-        throw new IndexOutOfBoundsException("No such piece: " + piece);
+    /**
+     * Get the GamePiece of the specified piece number
+     * @param piece piece number
+     * @return the GamePiece
+     */
+    public static GamePiece createPiece(int piece) {
+        return createPiece(piece, 0);
     }
 
     /**
-     * Create a new GamePiece of the specified piece number and rotation
+     * Get the GamePiece of the specified piece number and rotation
      * @param piece piece number
      * @param rotation number of times to rotate
-     * @return the created GamePiece
+     * @return the GamePiece
      */
     public static GamePiece createPiece(int piece, int rotation) {
-        var newPiece = createPiece(piece);
-
-        newPiece.rotate(rotation);
-        return newPiece;
+        if(piece < 0 || piece >= PIECES) {
+            throw new IndexOutOfBoundsException("No such piece: " + piece);
+        }
+        return TABLE[piece][Math.floorMod(rotation, ROTATIONS)];
     }
 
     /**
-     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the
-     * factory.
+     * Create a new table entry with the given name, block makeup and piece number. Should not be called directly, only
+     * when building the table.
      * @param name name of the piece
-     * @param blocks block makeup of the piece
-     * @param value the value of this piece
+     * @param shape block makeup of the piece, with 1 for each filled block
+     * @param number the piece number
+     * @param rotation the rotation of this entry
      */
-    private GamePiece(String name, int[][] blocks, int value) {
+    private GamePiece(String name, int[][] shape, int number, int rotation) {
         this.name = name;
-        this.blocks = blocks;
-        this.value = value;
+        this.number = number;
+        this.rotation = rotation;
+        this.value = number + 1;
 
         //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
+        blocks = new int[3][3];
+        int count = 0;
+        int left = 3, top = 3, right = -1, bottom = -1;
+        long bits = 0;
         for(int x = 0; x < blocks.length; x++) {
             for (int y = 0; y < blocks[x].length; y++) {
-                if(blocks[x][y] == 0) continue;
+                if(shape[x][y] == 0) continue;
                 blocks[x][y] = value;
+                count++;
+                bits |= 1L << (x + Grid.CHUNK * y);
+                left = Math.min(left, x);
+                top = Math.min(top, y);
+                right = Math.max(right, x);
+                bottom = Math.max(bottom, y);
+            }
+        }
+
+        minX = left;
+        minY = top;
+        width = right - left + 1;
+        height = bottom - top + 1;
+        mask = bits >>> (left + Grid.CHUNK * top);
+
+        cellX = new int[count];
+        cellY = new int[count];
+        int cell = 0;
+        for(int x = 0; x < blocks.length; x++) {
+            for (int y = 0; y < blocks[x].length; y++) {
+                if(blocks[x][y] == 0) continue;
+                cellX[cell] = x - 1;
+                cellY[cell] = y - 1;
+                colCells[x]++;
+                rowCells[y]++;
+                cell++;
             }
         }
     }
 
+    /**
+     * Rotate a 3x3 block makeup once clockwise
+     * @param blocks block makeup to rotate
+     * @return a new rotated block makeup
+     */
+    private static int[][] rotate(int[][] blocks) {
+        int[][] rotated = new int[blocks.length][blocks[0].length];
+        rotated[2][0] = blocks[0][0];
+        rotated[1][0] = blocks[0][1];
+        rotated[0][0] = blocks[0][2];
+
+        rotated[2][1] = blocks[1][0];
+        rotated[1][1] = blocks[1][1];
+        rotated[0][1] = blocks[1][2];
+
+        rotated[2][2] = blocks[2][0];
+        rotated[1][2] = blocks[2][1];
+        rotated[0][2] = blocks[2][2];
+
+        return rotated;
+    }
+
     /**
      * Get the value of this piece
      * @return piece value
@@ -157,41 +209,133 @@ public class GamePiece {
     }
 
     /**
-     * Get the block makeup of this piece
+     * Get the piece number of this piece
+     * @return piece number
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Get the rotation of this piece
+     * @return number of clockwise rotations from the starting orientation
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get the block makeup of this piece. Pieces are shared, so this is a fresh copy that can be changed freely; use
+     * {@link #getCellX} and {@link #getCellY} to read the blocks without copying.
      * @return 2D grid of the blocks representing the piece shape
      */
     public int[][] getBlocks() {
-        return blocks;
+        int[][] copy = new int[blocks.length][];
+        for(int x = 0; x < blocks.length; x++) {
+            copy[x] = blocks[x].clone();
+        }
+        return copy;
     }
 
     /**
-     * Rotate this piece the given number of rotations
-     * @param rotations number of rotations
+     * Get the number of blocks in this piece
+     * @return number of occupied cells
      */
-    public void rotate(int rotations) {
-        for(int rotated = 0; rotated < rotations; rotated ++) {
-            rotate();
-        }
+    public int getCellCount() {
+        return cellX.length;
     }
 
     /**
-     * Rotate this piece exactly once by rotating it's 3x3 grid
+     * Get the column offset of a block from the centre of this piece
+     * @param cell index of the block
+     * @return column offset between -1 and 1
      */
-    public void rotate() {
-        int[][] rotated = new int[blocks.length][blocks[0].length];
-        rotated[2][0] = blocks[0][0];
-        rotated[1][0] = blocks[0][1];
-        rotated[0][0] = blocks[0][2];
+    public int getCellX(int cell) {
+        return cellX[cell];
+    }
 
-        rotated[2][1] = blocks[1][0];
-        rotated[1][1] = blocks[1][1];
-        rotated[0][1] = blocks[1][2];
+    /**
+     * Get the row offset of a block from the centre of this piece
+     * @param cell index of the block
+     * @return row offset between -1 and 1
+     */
+    public int getCellY(int cell) {
+        return cellY[cell];
+    }
 
-        rotated[2][2] = blocks[2][0];
-        rotated[1][2] = blocks[2][1];
-        rotated[0][2] = blocks[2][2];
+    /**
+     * Get the number of blocks of this piece in a row of its 3x3 block makeup
+     * @param row row from 0 to 2
+     * @return occupied cells in that row
+     */
+    public int getRowCells(int row) {
+        return rowCells[row];
+    }
 
-        blocks = rotated;
+    /**
+     * Get the number of blocks of this piece in a column of its 3x3 block makeup
+     * @param col column from 0 to 2
+     * @return occupied cells in that column
+     */
+    public int getColumnCells(int col) {
+        return colCells[col];
+    }
+
+    /**
+     * Get the occupied cells of this piece as a bitmask, relative to the top left of its bounding box
+     * @return occupancy bitmask with a stride of {@link Grid#CHUNK}
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * Get the column offset of the bounding box within the 3x3 block makeup
+     * @return leftmost occupied column
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get the row offset of the bounding box within the 3x3 block makeup
+     * @return topmost occupied row
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the width of the bounding box of this piece
+     * @return number of occupied columns
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the bounding box of this piece
+     * @return number of occupied rows
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get this piece rotated the given number of rotations
+     * @param rotations number of clockwise rotations, negative to rotate anticlockwise
+     * @return the rotated piece
+     */
+    public GamePiece rotate(int rotations) {
+        return TABLE[number][Math.floorMod(rotation + rotations, ROTATIONS)];
+    }
+
+    /**
+     * Get this piece rotated exactly once clockwise
+     * @return the rotated piece
+     */
+    public GamePiece rotate() {
+        return rotate(1);
     }
 
 
@@ -0,0 +1,321 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+
+/**
+ * A GameState is an immutable snapshot of everything that decides how a game plays out, with a pure step function that
+ * applies the rules of Game to it.
+ *
+ * Stepping a state never changes it: a new state is returned, sharing nothing mutable with the old one, so any number
+ * of threads can branch from the same state at once without locking. States compare equal when they hold the same
+ * board, pieces, figures and random number generator state, so the result of a step can be cached.
+ *
+ * The rules are those of {@link Game#play}, {@link Game#blockClicked}, {@link Game#afterPiece}, {@link Game#score} and
+ * {@link Game#gameLoop}, including losing a life at once when neither piece can be placed. Pieces are dealt by a copy
+ * of the java.util.Random generator, so a state made with {@link #initial} deals exactly the pieces a Game made with the
+ * same seed does, and playing the same moves in both gives the same score.
+ *
+ * Colours are not kept: only which cells are occupied matters to the rules. The occupancy array uses the chunk layout
+ * of {@link Grid}, and is copied when a state is made and when it is read, so no one outside can change a state
+ * through it.
+ *
+ * @param cols number of columns
+ * @param rows number of rows
+ * @param occupancy occupied cells, one long per 8x8 chunk as in Grid
+ * @param currentPiece piece to place next
+ * @param followingPiece piece after that, which can be swapped in
+ * @param score score so far
+ * @param level current level
+ * @param life lives remaining
+ * @param multiplier current score multiplier
+ * @param linesCleared lines cleared so far
+ * @param piecesPlayed pieces placed so far
+ * @param over whether the game has ended
+ * @param random state of the piece generator
+ */
+public record GameState(int cols, int rows, long[] occupancy, GamePiece currentPiece, GamePiece followingPiece,
+                        int score, int level, int life, int multiplier, int linesCleared, int piecesPlayed,
+                        boolean over, long random) {
+
+    /**
+     * The constants of the linear congruential generator behind java.util.Random
+     */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * Keep a copy of the occupancy, so the caller's array can be changed afterwards
+     */
+    public GameState {
+        occupancy = occupancy.clone();
+    }
+
+    /**
+     * Get the occupied cells, one long per 8x8 chunk as in Grid
+     * @return a copy of the occupancy
+     */
+    @Override
+    public long[] occupancy() {
+        return occupancy.clone();
+    }
+
+    /**
+     * Create the state a new Game with the given seed starts in, once initialised
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed for piece generation
+     * @return starting state
+     */
+    public static GameState initial(int cols, int rows, long seed) {
+        long random = (seed ^ MULTIPLIER) & MASK;
+        int chunks = ((cols + Grid.CHUNK - 1) / Grid.CHUNK) * ((rows + Grid.CHUNK - 1) / Grid.CHUNK);
+
+        //The constructor deals the current piece, then initialising deals the following piece
+        long current = deal(random);
+        long following = deal(current >>> 16);
+
+        return new GameState(cols, rows, new long[chunks], piece(current), piece(following), 0, 0, 3, 1, 0, 0, false,
+                following >>> 16);
+    }
+
+    /**
+     * Apply an action to a state
+     * @param state state to start from
+     * @param action placement to make, or null to let the timer run out
+     * @return the state after the action
+     */
+    public static GameState step(GameState state, Placement action) {
+        return action == null ? state.expire() : state.play(action);
+    }
+
+    /**
+     * Make a placement: swap if asked, rotate, then place the current piece if it fits. As in Game, a placement that
+     * does not fit still swaps and rotates.
+     * @param placement placement to make
+     * @return the state after the placement
+     */
+    public GameState play(Placement placement) {
+        GamePiece current = currentPiece;
+        GamePiece following = followingPiece;
+        if(placement.isSwap()) {
+            current = followingPiece;
+            following = currentPiece;
+        }
+        if(placement.getRotation() != 0) current = current.rotate(placement.getRotation());
+
+        int x = placement.getX();
+        int y = placement.getY();
+        int chunksX = chunksX();
+        int originX = x - 1 + current.getMinX();
+        int originY = y - 1 + current.getMinY();
+        if(originX < 0 || originY < 0 || originX + current.getWidth() > cols || originY + current.getHeight() > rows
+                || Grid.collides(occupancy, chunksX, current.getMask(), originX, originY)) {
+            return new GameState(cols, rows, occupancy, current, following, score, level, life, multiplier,
+                    linesCleared, piecesPlayed, over, random);
+        }
+
+        long[] board = occupancy.clone();
+        Grid.stamp(board, chunksX, current.getMask(), originX, originY);
+
+        //Find the full lines through the piece, as Game.afterPiece does
+        int lines = 0;
+        for(int i = current.getMinY(); i < current.getMinY() + current.getHeight(); i++) {
+            if(rowCount(board, y - 1 + i) == cols) lines |= 1 << i;
+        }
+        for(int i = current.getMinX(); i < current.getMinX() + current.getWidth(); i++) {
+            if(columnCount(board, x - 1 + i) == rows) lines |= 1 << (3 + i);
+        }
+        int rowLines = Integer.bitCount(lines & Grid.ROW_LINES);
+        int colLines = Integer.bitCount(lines & Grid.COLUMN_LINES);
+        int line = rowLines + colLines;
+
+        int newScore = score;
+        int newLevel = level;
+        int newMultiplier = 1;
+        if(line != 0) {
+            int blocks = (rowLines * cols) + (colLines * rows) - (rowLines * colLines);
+            newScore += line * blocks * 10 * multiplier;
+            newLevel = newScore / 1000;
+            newMultiplier = multiplier + 1;
+            for(int i = 0; i < 3; i++) {
+                if((lines & (1 << i)) != 0) clearRow(board, y - 1 + i);
+                if((lines & (1 << (3 + i))) != 0) clearColumn(board, x - 1 + i);
+            }
+        }
+
+        long dealt = deal(random);
+        var next = new GameState(cols, rows, board, following, piece(dealt), newScore, newLevel, life, newMultiplier,
+                linesCleared + line, piecesPlayed + 1, over, dealt >>> 16);
+        return next.checkMoves();
+    }
+
+    /**
+     * Let the timer run out: lose a life and move on to the next piece, or end the game if no lives are left
+     * @return the state after the timer expired
+     */
+    public GameState expire() {
+        return loseLife().checkMoves();
+    }
+
+    /**
+     * As Game.loseLife: lose a life and deal the next piece, or end the game if no lives are left
+     */
+    private GameState loseLife() {
+        if(over) return this;
+        if(life == 0) {
+            return new GameState(cols, rows, occupancy, currentPiece, followingPiece, score, level, life, multiplier,
+                    linesCleared, piecesPlayed, true, random);
+        }
+
+        long dealt = deal(random);
+        return new GameState(cols, rows, occupancy, followingPiece, piece(dealt), score, level, life - 1, 1,
+                linesCleared, piecesPlayed, over, dealt >>> 16);
+    }
+
+    /**
+     * Check whether either piece can be placed anywhere in any rotation
+     * @return true if there is a legal move, swapping if needed
+     */
+    public boolean hasMoves() {
+        int chunksX = chunksX();
+        for(int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            if(Grid.hasPlacement(occupancy, chunksX, cols, rows, currentPiece.rotate(rotation))) return true;
+            if(Grid.hasPlacement(occupancy, chunksX, cols, rows, followingPiece.rotate(rotation))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a cell is occupied
+     * @param x column
+     * @param y row
+     * @return true if the cell holds a block
+     */
+    public boolean isOccupied(int x, int y) {
+        return (occupancy[(y / Grid.CHUNK) * chunksX() + (x / Grid.CHUNK)]
+                & (1L << ((x % Grid.CHUNK) + Grid.CHUNK * (y % Grid.CHUNK)))) != 0;
+    }
+
+    /**
+     * As Game.checkMoves: while neither piece can be placed, the timer runs out straight away
+     */
+    private GameState checkMoves() {
+        var state = this;
+        while(!state.over && !state.hasMoves()) {
+            state = state.loseLife();
+        }
+        return state;
+    }
+
+    private int chunksX() {
+        return (cols + Grid.CHUNK - 1) / Grid.CHUNK;
+    }
+
+    private int rowCount(long[] board, int y) {
+        int count = 0;
+        int chunksX = chunksX();
+        int shift = Grid.CHUNK * (y % Grid.CHUNK);
+        for(int chunkX = 0; chunkX < chunksX; chunkX++) {
+            count += Long.bitCount((board[(y / Grid.CHUNK) * chunksX + chunkX] >>> shift) & 0xFF);
+        }
+        return count;
+    }
+
+    private int columnCount(long[] board, int x) {
+        int count = 0;
+        int chunksX = chunksX();
+        long column = 0x0101010101010101L << (x % Grid.CHUNK);
+        for(int chunk = x / Grid.CHUNK; chunk < board.length; chunk += chunksX) {
+            count += Long.bitCount(board[chunk] & column);
+        }
+        return count;
+    }
+
+    private void clearRow(long[] board, int y) {
+        int chunksX = chunksX();
+        long row = ~(0xFFL << (Grid.CHUNK * (y % Grid.CHUNK)));
+        for(int chunkX = 0; chunkX < chunksX; chunkX++) {
+            board[(y / Grid.CHUNK) * chunksX + chunkX] &= row;
+        }
+    }
+
+    private void clearColumn(long[] board, int x) {
+        int chunksX = chunksX();
+        long column = ~(0x0101010101010101L << (x % Grid.CHUNK));
+        for(int chunk = x / Grid.CHUNK; chunk < board.length; chunk += chunksX) {
+            board[chunk] &= column;
+        }
+    }
+
+    /**
+     * Deal a piece as Game.spawnPiece does, with nextInt(PIECES) then nextInt(ROTATIONS)
+     * @param random generator state
+     * @return the new generator state in the top 48 bits, then the piece number and rotation a byte each
+     */
+    private static long deal(long random) {
+        long number = nextInt(random, GamePiece.PIECES);
+        long rotation = nextInt(number >>> 8, GamePiece.ROTATIONS);
+        return ((rotation >>> 8) << 16) | ((number & 0xFF) << 8) | (rotation & 0xFF);
+    }
+
+    /**
+     * Get the piece from the result of {@link #deal}
+     */
+    private static GamePiece piece(long dealt) {
+        return GamePiece.createPiece((int) ((dealt >>> 8) & 0xFF), (int) (dealt & 0xFF));
+    }
+
+    /**
+     * Produce the next value of java.util.Random.nextInt(bound), for a bound below 256
+     * @param random generator state
+     * @return the new generator state shifted up a byte, with the value in the low byte
+     */
+    private static long nextInt(long random, int bound) {
+        random = advance(random);
+        int bits = (int) (random >>> 17);
+        if((bound & -bound) == bound) return (random << 8) | (int) ((bound * (long) bits) >> 31);
+        int value = bits % bound;
+        while(bits - value + (bound - 1) < 0) {
+            random = advance(random);
+            bits = (int) (random >>> 17);
+            value = bits % bound;
+        }
+        return (random << 8) | value;
+    }
+
+    /**
+     * Step the generator state forward once, as java.util.Random.next does
+     */
+    private static long advance(long random) {
+        return (random * MULTIPLIER + ADDEND) & MASK;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof GameState other)) return false;
+        return cols == other.cols && rows == other.rows && score == other.score && level == other.level
+                && life == other.life && multiplier == other.multiplier && linesCleared == other.linesCleared
+                && piecesPlayed == other.piecesPlayed && over == other.over && random == other.random
+                && currentPiece == other.currentPiece && followingPiece == other.followingPiece
+                && Arrays.equals(occupancy, other.occupancy);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Arrays.hashCode(occupancy);
+        hash = 31 * hash + currentPiece.hashCode();
+        hash = 31 * hash + followingPiece.hashCode();
+        hash = 31 * hash + Long.hashCode(random);
+        hash = 31 * hash + score;
+        hash = 31 * hash + life * 8 + multiplier;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "GameState[score=" + score + ", level=" + level + ", life=" + life + ", multiplier=" + multiplier
+                + ", current=" + currentPiece + ", following=" + followingPiece + ", over=" + over + "]";
+    }
+}
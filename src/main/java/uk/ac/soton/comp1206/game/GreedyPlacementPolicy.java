@@ -0,0 +1,35 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A PlacementPolicy which picks the legal placement that clears the most lines, preferring placements that leave the
+ * fullest rows and columns when nothing can be cleared.
+ */
+public class GreedyPlacementPolicy implements PlacementPolicy {
+
+    @Override
+    public Placement choose(Game game) {
+        Placement best = null;
+        int bestScore = Integer.MIN_VALUE;
+        var grid = game.getGrid();
+
+        for(var placement : game.legalPlacements(true)) {
+            var piece = (placement.isSwap() ? game.getFollowingPiece() : game.getCurrentPiece())
+                    .rotate(placement.getRotation());
+            int lines = Integer.bitCount(grid.linesIfPlayed(piece, placement.getX(), placement.getY()));
+
+            //Favour cells next to lines that are already nearly full
+            int fill = 0;
+            for(int cell = 0; cell < piece.getCellCount(); cell++) {
+                fill += grid.getRowCount(placement.getY() + piece.getCellY(cell));
+                fill += grid.getColumnCount(placement.getX() + piece.getCellX(cell));
+            }
+
+            int score = lines * 1000 + fill;
+            if(score > bestScore) {
+                bestScore = score;
+                best = placement;
+            }
+        }
+        return best;
+    }
+}
@@ -1,18 +1,32 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.Multimedia;
-import uk.ac.soton.comp1206.scene.MenuScene;
+import uk.ac.soton.comp1206.event.CellUpdatedListener;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * Occupancy is held as packed bitmasks: the board is split into 8x8 chunks and each chunk is a single long, so the
+ * standard 5x5 board fits in one word and larger boards use one word per chunk. The colour of each block is kept in a
+ * byte array per chunk alongside, which is only allocated once the chunk holds a block and is dropped again when it
+ * empties, so the empty parts of a large board cost a single word per chunk. Checking a placement is a shift and AND
+ * against the chunks a piece covers, and placing it is an OR.
+ *
+ * A snapshot of the grid can be taken at any time without copying anything: the snapshot shares the grid's arrays, and
+ * the grid copies them before its next change instead. Colours are copied a chunk at a time, only for the chunks that
+ * change.
+ *
+ * The Grid is plain Java. Changes to cells are reported to any registered CellUpdatedListeners; use an ObservableGrid
+ * to get an IntegerProperty per cell that can be bound to enable display of the contents of the grid.
+ *
+ * A board that draws the grid once per frame should instead track changes with {@link #trackDirty}: each change bumps
+ * a version number and marks the cell in every DirtyTracker, which each board drains once per frame, so a line clear
+ * of hundreds of cells is drawn in one go rather than cell by cell.
  *
  * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  *
@@ -20,6 +34,43 @@ import uk.ac.soton.comp1206.scene.MenuScene;
  */
 public class Grid {
 
+    /**
+     * The number of cells along each side of a chunk
+     */
+    public static final int CHUNK = 8;
+
+    /**
+     * The largest number of columns or rows a grid can have
+     */
+    public static final int MAX_SIZE = 1024;
+
+    /**
+     * Bits of a line mask for the three rows of a placement window, starting from the row above the centre
+     */
+    public static final int ROW_LINES = 0b000111;
+
+    /**
+     * Bits of a line mask for the three columns of a placement window, starting from the column left of the centre
+     */
+    public static final int COLUMN_LINES = 0b111000;
+
+    /**
+     * Masks selecting the lowest n columns of every row of a chunk, indexed by n
+     */
+    static final long[] LOW_COLUMNS = new long[CHUNK + 1];
+
+    /**
+     * Masks selecting the lowest n rows of a chunk, indexed by n
+     */
+    static final long[] LOW_ROWS = new long[CHUNK + 1];
+
+    static {
+        for(int n = 0; n <= CHUNK; n++) {
+            LOW_COLUMNS[n] = ((1L << n) - 1) * 0x0101010101010101L;
+            LOW_ROWS[n] = n == CHUNK ? -1L : (1L << (CHUNK * n)) - 1;
+        }
+    }
+
     /**
      * The number of columns in this grid
      */
@@ -31,11 +82,62 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * The number of chunks across the grid
+     */
+    private final int chunksX;
+
+    /**
+     * Occupancy of each 8x8 chunk, in row-major chunk order. Bit (x + 8 * y) of a chunk is set when that cell is filled.
      */
-    private final SimpleIntegerProperty[][] grid;
+    private long[] chunks;
+
+    /**
+     * The value held in each cell, one array per chunk indexed by the cell's bit within the chunk. A chunk with no
+     * blocks has no array.
+     */
+    private byte[][] colours;
+
+    /**
+     * Whether each chunk's colour array belongs to this grid alone, rather than being shared with a snapshot
+     */
+    private boolean[] ownColours;
+
+    /**
+     * Set when a snapshot shares the arrays of this grid, which must then be copied before they are changed
+     */
+    private boolean shared = false;
+
+    /**
+     * The number of filled cells in each row and each column, kept up to date on every write
+     */
+    private int[] rowCounts;
+    private int[] colCounts;
+
+    /**
+     * Zobrist hash of which cells are occupied, kept up to date on every write
+     */
+    private long hash = 0;
+
+    /**
+     * The number of changes made to cells, which only ever goes up
+     */
+    private long version = 0;
+
+    /**
+     * The trackers marked with every changed cell, one per board drawing this grid
+     */
+    private final List<DirtyTracker> trackers = new ArrayList<>();
+
+    /**
+     * Listeners told about every cell that changes
+     */
+    private final List<CellUpdatedListener> listeners = new ArrayList<>();
     private static final Logger logger = LogManager.getLogger(Grid.class);
-    Multimedia multimedia = new Multimedia();
+
+    /**
+     * Finds full lines across the whole board
+     */
+    private static final LineScanner LINE_SCANNER = LineScanner.create();
 
 
     /**
@@ -44,60 +146,494 @@ public class Grid {
      * @param rows number of rows
      */
     public Grid(int cols, int rows) {
+        if(cols < 1 || rows < 1 || cols > MAX_SIZE || rows > MAX_SIZE) {
+            throw new IllegalArgumentException(
+                    "Grid must be between 1 and " + MAX_SIZE + " cells across, not " + cols + "x" + rows);
+        }
         this.cols = cols;
         this.rows = rows;
 
-        //Create the grid itself
-        grid = new SimpleIntegerProperty[cols][rows];
+        this.chunksX = (cols + CHUNK - 1) / CHUNK;
+        this.chunks = new long[chunksX * ((rows + CHUNK - 1) / CHUNK)];
+        this.colours = new byte[chunks.length][];
+        this.ownColours = new boolean[chunks.length];
+        this.rowCounts = new int[rows];
+        this.colCounts = new int[cols];
+    }
 
-        //Add a SimpleIntegerProperty to every block in the grid
-        for(var y = 0; y < rows; y++) {
-            for(var x = 0; x < cols; x++) {
-                grid[x][y] = new SimpleIntegerProperty(0);
-            }
+    /**
+     * Create a copy of another grid, without its listeners or tracking of changes
+     * @param other grid to copy
+     */
+    private Grid(Grid other) {
+        this.cols = other.cols;
+        this.rows = other.rows;
+        this.chunksX = other.chunksX;
+        this.chunks = other.chunks.clone();
+        this.colours = new byte[other.colours.length][];
+        this.ownColours = new boolean[other.colours.length];
+        for(int chunk = 0; chunk < colours.length; chunk++) {
+            if(other.colours[chunk] != null) colours[chunk] = other.colours[chunk].clone();
+            ownColours[chunk] = true;
         }
+        this.rowCounts = other.rowCounts.clone();
+        this.colCounts = other.colCounts.clone();
+        this.hash = other.hash;
     }
 
     /**
-     * Get the Integer property contained inside the grid at a given row and column index. Can be used for binding.
-     * @param x column
-     * @param y row
-     * @return the IntegerProperty at the given x and y in this grid
+     * Create an independent copy of this grid, for trying out moves without affecting the game. Listeners and tracking
+     * of changes are not copied.
+     * @return copy of this grid
+     */
+    public Grid copy() {
+        return new Grid(this);
+    }
+
+    /**
+     * Take a consistent, unchanging view of this grid as it is now. This costs the same however large the grid is.
+     * The snapshot can be handed to any thread, and is unaffected by later changes to the grid. It should be taken on
+     * the thread that changes the grid.
+     * @return snapshot of this grid
+     */
+    public GridSnapshot snapshot() {
+        shared = true;
+        return new GridSnapshot(cols, rows, chunksX, chunks, colours, rowCounts, colCounts, hash);
+    }
+
+    /**
+     * Copy any arrays shared with a snapshot, before this grid changes
      */
-    public IntegerProperty getGridProperty(int x, int y) {
-        return grid[x][y];
+    private void beforeWrite() {
+        if(!shared) return;
+        chunks = chunks.clone();
+        colours = colours.clone();
+        ownColours = new boolean[colours.length];
+        rowCounts = rowCounts.clone();
+        colCounts = colCounts.clone();
+        shared = false;
     }
 
+    /**
+     * Add a listener to be told whenever a cell in this grid changes
+     * @param listener listener to add
+     */
+    public void addListener(CellUpdatedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Start marking changed cells for a board to drain once per frame. Each board gets its own tracker, so any number
+     * of boards can draw the same grid. The listener is run by the first change after each drain, so at most once per
+     * frame however many cells change, and can be used to ask for the frame.
+     * @param listener listener to run when the tracker stops being clean, or null for none
+     * @return tracker holding the cells changed from now on, laid out like {@link #placementMask}
+     */
+    public DirtyTracker trackDirty(Runnable listener) {
+        var tracker = new DirtyTracker(chunks.length, listener);
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    /**
+     * Stop marking changed cells for a tracker made with {@link #trackDirty}
+     * @param tracker tracker to stop
+     */
+    public void stopTracking(DirtyTracker tracker) {
+        trackers.remove(tracker);
+    }
+
+    /**
+     * Get the number of changes made to cells so far. A board that saw the same version last frame has nothing to
+     * redraw.
+     * @return version of the cells
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private void notifyListeners(int x, int y, int value) {
+        version++;
+        if(!trackers.isEmpty()) markDirty(x, y);
+        for (CellUpdatedListener listener : listeners) {
+            listener.cellUpdated(x, y, value);
+        }
+    }
+
+    private void markDirty(int x, int y) {
+        int index = (y / CHUNK) * chunksX + (x / CHUNK);
+        long bit = 1L << ((x % CHUNK) + CHUNK * (y % CHUNK));
+        for(int i = 0; i < trackers.size(); i++) {
+            trackers.get(i).mark(index, bit);
+        }
+    }
+
+    /**
+     * Place a piece centred on the given x and y. The placement should already have been checked with canPlayPiece.
+     * @param piece piece to place
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     */
     public void playPiece(GamePiece piece, int x, int y){
         logger.info("--placing piece of " + piece);
+        place(piece, x, y);
+    }
+
+    /**
+     * Place a piece without logging, for searches that place many pieces
+     */
+    void place(GamePiece piece, int x, int y) {
+        int originX = x - 1 + piece.getMinX();
+        int originY = y - 1 + piece.getMinY();
+        long mask = piece.getMask();
+        beforeWrite();
+        stamp(chunks, chunksX, mask, originX, originY);
+
+        //Write the colour of every covered cell
+        byte value = (byte) piece.getValue();
+        while(mask != 0) {
+            int bit = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            int cellX = originX + (bit % CHUNK);
+            int cellY = originY + (bit / CHUNK);
+            colourChunk(cellX, cellY)[(cellX % CHUNK) + CHUNK * (cellY % CHUNK)] = value;
+            hash ^= Zobrist.cell(cellY * cols + cellX);
+            rowCounts[cellY]++;
+            colCounts[cellX]++;
+            notifyListeners(cellX, cellY, value);
+        }
+    }
+
+    /**
+     * Check whether a piece centred on the given x and y would fit inside the grid without overlapping any blocks
+     * @param piece piece to place
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     * @return true if the piece can be placed
+     */
+    public boolean canPlayPiece(GamePiece piece, int x, int y){
+        if(!fits(piece, x, y)) {
+            logger.info("fail to place");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check a placement against the bounds and the occupancy bitmasks only
+     * @param piece piece to place
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     * @return true if the piece can be placed
+     */
+    boolean fits(GamePiece piece, int x, int y) {
+        int originX = x - 1 + piece.getMinX();
+        int originY = y - 1 + piece.getMinY();
+        if(originX < 0 || originY < 0 || originX + piece.getWidth() > cols || originY + piece.getHeight() > rows) {
+            return false;
+        }
+        return !collides(chunks, chunksX, piece.getMask(), originX, originY);
+    }
 
-        for (int i = 0; i < piece.getBlocks().length; i++) {
-            for (int j = 0; j < piece.getBlocks()[0].length; j++) {
-                int gridX = x + i -1;
-                int gridY = y + j -1;
-                if (piece.getBlocks()[i][j] > 0) {
-                    grid[gridX][gridY].set(piece.getValue());
+    /**
+     * Find every cell a piece can be centred on, in one pass over the board. The result has the same layout as the
+     * occupancy chunks: one long per 8x8 chunk, with bit (x + 8 * y) set within it for each valid centre.
+     * @param piece piece to place
+     * @return mask of valid centres, tested with {@link #inMask}
+     */
+    public long[] placementMask(GamePiece piece) {
+        var result = new long[chunks.length];
+        int offsetX = 1 - piece.getMinX();
+        int offsetY = 1 - piece.getMinY();
+        int firstX = Math.max(0, -offsetX);
+        int firstY = Math.max(0, -offsetY);
+        int lastX = Math.min(cols - piece.getWidth(), cols - 1 - offsetX);
+        int lastY = Math.min(rows - piece.getHeight(), rows - 1 - offsetY);
+        if(firstX > lastX || firstY > lastY) return result;
+
+        int chunksY = chunks.length / chunksX;
+        for(int chunkY = firstY / CHUNK; chunkY <= lastY / CHUNK; chunkY++) {
+            for(int chunkX = firstX / CHUNK; chunkX <= lastX / CHUNK; chunkX++) {
+                long origins = origins(chunks, chunksX, chunksY, piece.getMask(), chunkX, chunkY)
+                        & range(chunkX, chunkY, firstX, lastX, firstY, lastY);
+                while(origins != 0) {
+                    int bit = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    int x = chunkX * CHUNK + bit % CHUNK + offsetX;
+                    int y = chunkY * CHUNK + bit / CHUNK + offsetY;
+                    result[(y / CHUNK) * chunksX + (x / CHUNK)] |= 1L << ((x % CHUNK) + CHUNK * (y % CHUNK));
                 }
             }
         }
+        return result;
     }
 
-    public boolean canPlayPiece(GamePiece piece, int x, int y){
-        for (int i = 0; i < piece.getBlocks().length; i++) {
-            for (int j = 0; j < piece.getBlocks()[0].length; j++) {
-                if(piece.getBlocks()[i][j] > 0){
-                    int gridX = x + i - 1;
-                    int gridY = y + j - 1;
-
-                    if(gridX < 0 || gridY < 0 || gridX >= cols || gridY >= rows || grid[gridX][gridY].get() > 0){
-                        logger.info("fail to place");
-                        multimedia.playAudio("/sounds/fail.wav");
-                        return false;
-                    }
+    /**
+     * Check whether a piece can be centred on any cell of the board. Stops at the first chunk with a valid centre, so
+     * on a large board with space left this returns almost at once.
+     * @param piece piece to place
+     * @return true if there is at least one valid centre
+     */
+    public boolean hasPlacement(GamePiece piece) {
+        return hasPlacement(chunks, chunksX, cols, rows, piece);
+    }
+
+    /**
+     * Check whether a piece can be centred on any cell of a board given by its occupancy chunks
+     * @param chunks occupancy chunks
+     * @param chunksX number of chunks across
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param piece piece to place
+     * @return true if there is at least one valid centre
+     */
+    static boolean hasPlacement(long[] chunks, int chunksX, int cols, int rows, GamePiece piece) {
+        //Only origins that put the whole piece and its centre on the board can be clicked
+        int offsetX = 1 - piece.getMinX();
+        int offsetY = 1 - piece.getMinY();
+        int firstX = Math.max(0, -offsetX);
+        int firstY = Math.max(0, -offsetY);
+        int lastX = Math.min(cols - piece.getWidth(), cols - 1 - offsetX);
+        int lastY = Math.min(rows - piece.getHeight(), rows - 1 - offsetY);
+        if(firstX > lastX || firstY > lastY) return false;
+
+        int chunksY = chunks.length / chunksX;
+        for(int chunkY = firstY / CHUNK; chunkY <= lastY / CHUNK; chunkY++) {
+            for(int chunkX = firstX / CHUNK; chunkX <= lastX / CHUNK; chunkX++) {
+                if((origins(chunks, chunksX, chunksY, piece.getMask(), chunkX, chunkY)
+                        & range(chunkX, chunkY, firstX, lastX, firstY, lastY)) != 0) {
+                    return true;
                 }
             }
         }
-        return true;
+        return false;
+    }
+
+    /**
+     * Find the origins within one chunk where a piece fits, by ANDing together the free cells under every block of the
+     * piece at once. The free cells are shifted across from the chunks to the right and below, so a piece reaching over
+     * a chunk boundary is tested the same way. Origins that would put the piece off the board are not excluded.
+     * @param chunks occupancy chunks
+     * @param chunksX number of chunks across
+     * @param chunksY number of chunks down
+     * @param mask mask of the piece relative to its top left
+     * @param chunkX column of the chunk
+     * @param chunkY row of the chunk
+     * @return bit (x + 8 * y) set for each origin within the chunk where the piece does not collide
+     */
+    private static long origins(long[] chunks, int chunksX, int chunksY, long mask, int chunkX, int chunkY) {
+        long origins = -1L;
+        while(mask != 0 && origins != 0) {
+            int bit = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            int dx = bit % CHUNK;
+            int dy = bit / CHUNK;
+            long top = free(chunks, chunksX, chunksY, chunkX, chunkY, dx);
+            if(dy != 0) {
+                long bottom = free(chunks, chunksX, chunksY, chunkX, chunkY + 1, dx);
+                top = (top >>> (CHUNK * dy)) | (bottom << (CHUNK * (CHUNK - dy)));
+            }
+            origins &= top;
+        }
+        return origins;
+    }
+
+    /**
+     * Get the free cells of a chunk moved left by some columns, with the columns of the chunk to its right moving in.
+     * Cells past the edge of the chunks count as filled.
+     */
+    private static long free(long[] chunks, int chunksX, int chunksY, int chunkX, int chunkY, int dx) {
+        if(chunkY >= chunksY) return 0;
+        int index = chunkY * chunksX + chunkX;
+        long free = ~chunks[index];
+        if(dx == 0) return free;
+        long right = chunkX + 1 < chunksX ? ~chunks[index + 1] : 0;
+        return ((free >>> dx) & LOW_COLUMNS[CHUNK - dx]) | ((right << (CHUNK - dx)) & ~LOW_COLUMNS[CHUNK - dx]);
+    }
+
+    /**
+     * Get the cells of a chunk that lie within a range of columns and rows
+     */
+    private static long range(int chunkX, int chunkY, int firstX, int lastX, int firstY, int lastY) {
+        int fromX = Math.max(0, firstX - chunkX * CHUNK);
+        int toX = Math.min(CHUNK - 1, lastX - chunkX * CHUNK);
+        int fromY = Math.max(0, firstY - chunkY * CHUNK);
+        int toY = Math.min(CHUNK - 1, lastY - chunkY * CHUNK);
+        return (LOW_COLUMNS[toX + 1] & ~LOW_COLUMNS[fromX]) & (LOW_ROWS[toY + 1] & ~LOW_ROWS[fromY]);
+    }
+
+    /**
+     * Check whether a cell is set in a mask laid out like the occupancy chunks, such as from {@link #placementMask}
+     * @param mask mask to test
+     * @param x column
+     * @param y row
+     * @return true if the cell is set
+     */
+    public boolean inMask(long[] mask, int x, int y) {
+        return (mask[(y / CHUNK) * chunksX + (x / CHUNK)] & (1L << ((x % CHUNK) + CHUNK * (y % CHUNK)))) != 0;
+    }
+
+    /**
+     * Test a chunk-stride mask placed with its top left at the given cell against the occupied cells
+     * @param chunks occupancy chunks
+     * @param chunksX number of chunks across
+     * @param mask mask relative to its top left
+     * @param originX column of the top left of the mask
+     * @param originY row of the top left of the mask
+     * @return true if any cell of the mask is already occupied
+     */
+    static boolean collides(long[] chunks, int chunksX, long mask, int originX, int originY) {
+        int chunkX = originX / CHUNK;
+        int localX = originX % CHUNK;
+        long left = mask & LOW_COLUMNS[CHUNK - localX];
+        long right = mask ^ left;
+        return collidesColumn(chunks, chunksX, left << localX, chunkX, originY)
+                || (right != 0 && collidesColumn(chunks, chunksX, right >>> (CHUNK - localX), chunkX + 1, originY));
+    }
+
+    /**
+     * Test the part of a mask that falls within one column of chunks, splitting it across a chunk row boundary if needed
+     */
+    private static boolean collidesColumn(long[] chunks, int chunksX, long part, int chunkX, int originY) {
+        int index = (originY / CHUNK) * chunksX + chunkX;
+        int localY = originY % CHUNK;
+        long top = part & LOW_ROWS[CHUNK - localY];
+        long bottom = part ^ top;
+        return (chunks[index] & (top << (CHUNK * localY))) != 0
+                || (bottom != 0 && (chunks[index + chunksX] & (bottom >>> (CHUNK * (CHUNK - localY)))) != 0);
+    }
+
+    /**
+     * Set the occupancy bits of a chunk-stride mask placed with its top left at the given cell
+     * @param chunks occupancy chunks to change
+     * @param chunksX number of chunks across
+     * @param mask mask relative to its top left
+     * @param originX column of the top left of the mask
+     * @param originY row of the top left of the mask
+     */
+    static void stamp(long[] chunks, int chunksX, long mask, int originX, int originY) {
+        int chunkX = originX / CHUNK;
+        int localX = originX % CHUNK;
+        long left = mask & LOW_COLUMNS[CHUNK - localX];
+        long right = mask ^ left;
+        stampColumn(chunks, chunksX, left << localX, chunkX, originY);
+        if(right != 0) stampColumn(chunks, chunksX, right >>> (CHUNK - localX), chunkX + 1, originY);
+    }
+
+    /**
+     * Set the part of a mask that falls within one column of chunks, splitting it across a chunk row boundary if needed
+     */
+    private static void stampColumn(long[] chunks, int chunksX, long part, int chunkX, int originY) {
+        int index = (originY / CHUNK) * chunksX + chunkX;
+        int localY = originY % CHUNK;
+        long top = part & LOW_ROWS[CHUNK - localY];
+        long bottom = part ^ top;
+        chunks[index] |= top << (CHUNK * localY);
+        if(bottom != 0) chunks[index + chunksX] |= bottom >>> (CHUNK * (CHUNK - localY));
+    }
+
+    /**
+     * Find every full row on the board. Moves only need {@link #fullLines}; this is for checking a whole board at
+     * once, and uses the Vector API when it is available.
+     * @return bitset with bit y set, in long y / 64, for every full row y
+     */
+    public long[] fullRows() {
+        var full = new long[(rows + 63) / 64];
+        LINE_SCANNER.fullRows(chunks, chunksX, cols, rows, full);
+        return full;
+    }
+
+    /**
+     * Find every full column on the board, as {@link #fullRows} does for rows
+     * @return bitset with bit x set, in long x / 64, for every full column x
+     */
+    public long[] fullColumns() {
+        var full = new long[(cols + 63) / 64];
+        LINE_SCANNER.fullColumns(chunks, chunksX, cols, rows, full);
+        return full;
+    }
+
+    /**
+     * Find the full lines among the rows and columns covered by a piece centred on the given x and y. Only the lines
+     * the piece touches are checked, using the fill counts, so this costs the size of the piece rather than the board.
+     * @param piece piece that was placed
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     * @return line mask with {@link #ROW_LINES} bits set for full rows y-1 to y+1 and {@link #COLUMN_LINES} bits set
+     * for full columns x-1 to x+1
+     */
+    public int fullLines(GamePiece piece, int x, int y) {
+        int lines = 0;
+        for(int i = piece.getMinY(); i < piece.getMinY() + piece.getHeight(); i++) {
+            if(rowCounts[y - 1 + i] == cols) lines |= 1 << i;
+        }
+        for(int i = piece.getMinX(); i < piece.getMinX() + piece.getWidth(); i++) {
+            if(colCounts[x - 1 + i] == rows) lines |= 1 << (3 + i);
+        }
+        return lines;
+    }
+
+    /**
+     * Find the lines that would become full if a piece were placed centred on the given x and y, without changing the
+     * grid. The placement should already have been checked with canPlayPiece.
+     * @param piece piece to place
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     * @return line mask in the same form as {@link #fullLines}
+     */
+    public int linesIfPlayed(GamePiece piece, int x, int y) {
+        int lines = 0;
+        for(int i = piece.getMinY(); i < piece.getMinY() + piece.getHeight(); i++) {
+            if(rowCounts[y - 1 + i] + piece.getRowCells(i) == cols) lines |= 1 << i;
+        }
+        for(int i = piece.getMinX(); i < piece.getMinX() + piece.getWidth(); i++) {
+            if(colCounts[x - 1 + i] + piece.getColumnCells(i) == rows) lines |= 1 << (3 + i);
+        }
+        return lines;
+    }
+
+    /**
+     * Empty the given full lines around a placement, as found by {@link #fullLines}
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     * @param lines line mask
+     * @return the number of blocks cleared
+     */
+    public int clearLines(int x, int y, int lines) {
+        int blocks = 0;
+        for(int i = 0; i < 3; i++) {
+            if((lines & (1 << i)) == 0) continue;
+            for(int c = 0; c < cols; c++) {
+                if(isOccupied(c, y - 1 + i)) blocks++;
+                set(c, y - 1 + i, 0);
+            }
+        }
+        for(int i = 0; i < 3; i++) {
+            if((lines & (1 << (3 + i))) == 0) continue;
+            for(int r = 0; r < rows; r++) {
+                if(isOccupied(x - 1 + i, r)) blocks++;
+                set(x - 1 + i, r, 0);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Get the number of filled cells in a row
+     * @param y row
+     * @return filled cells
+     */
+    public int getRowCount(int y) {
+        return rowCounts[y];
+    }
+
+    /**
+     * Get the number of filled cells in a column
+     * @param x column
+     * @return filled cells
+     */
+    public int getColumnCount(int x) {
+        return colCounts[x];
     }
 
     /**
@@ -107,23 +643,84 @@ public class Grid {
      * @param value the new value
      */
     public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+        long bit = 1L << ((x % CHUNK) + CHUNK * (y % CHUNK));
+        int index = (y / CHUNK) * chunksX + (x / CHUNK);
+        boolean wasOccupied = (chunks[index] & bit) != 0;
+        if(value == 0 && !wasOccupied) return;
+        beforeWrite();
+        if(value == 0) {
+            chunks[index] &= ~bit;
+            if(wasOccupied) {
+                hash ^= Zobrist.cell(y * cols + x);
+                rowCounts[y]--;
+                colCounts[x]--;
+            }
+        } else {
+            chunks[index] |= bit;
+            if(!wasOccupied) {
+                hash ^= Zobrist.cell(y * cols + x);
+                rowCounts[y]++;
+                colCounts[x]++;
+            }
+        }
+        if(chunks[index] == 0) {
+            colours[index] = null;
+        } else {
+            colourChunk(x, y)[(x % CHUNK) + CHUNK * (y % CHUNK)] = (byte) value;
+        }
+        notifyListeners(x, y, value);
     }
 
     /**
      * Get the value represented at the given x and y index within the grid
      * @param x column
      * @param y row
-     * @return the value
+     * @return the value, or -1 if there is no such cell
      */
     public int get(int x, int y) {
-        try {
-            //Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if(x < 0 || y < 0 || x >= cols || y >= rows) {
             //No such index
             return -1;
         }
+        byte[] chunk = colours[(y / CHUNK) * chunksX + (x / CHUNK)];
+        return chunk == null ? 0 : chunk[(x % CHUNK) + CHUNK * (y % CHUNK)];
+    }
+
+    /**
+     * Get the colours of the chunk holding a cell, allocating them if the chunk has none yet
+     * @param x column
+     * @param y row
+     * @return colours of the chunk, indexed by bit within the chunk
+     */
+    private byte[] colourChunk(int x, int y) {
+        int index = (y / CHUNK) * chunksX + (x / CHUNK);
+        if(colours[index] == null) {
+            colours[index] = new byte[CHUNK * CHUNK];
+            ownColours[index] = true;
+        } else if(!ownColours[index]) {
+            colours[index] = colours[index].clone();
+            ownColours[index] = true;
+        }
+        return colours[index];
+    }
+
+    /**
+     * Check whether the cell at the given x and y holds a block
+     * @param x column
+     * @param y row
+     * @return true if the cell is filled
+     */
+    public boolean isOccupied(int x, int y) {
+        return (chunks[(y / CHUNK) * chunksX + (x / CHUNK)] & (1L << ((x % CHUNK) + CHUNK * (y % CHUNK)))) != 0;
+    }
+
+    /**
+     * Get the Zobrist hash of which cells are occupied. Grids with the same cells filled have the same hash, whatever
+     * colours they hold.
+     * @return occupancy hash
+     */
+    public long getHash() {
+        return hash;
     }
 
     /**
@@ -0,0 +1,102 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GridSnapshot is an immutable view of a Grid at the moment it was taken, made with {@link Grid#snapshot}.
+ *
+ * Taking a snapshot copies nothing: it shares the arrays of the grid, and the grid copies them before it next changes.
+ * A snapshot never changes, so it can be read from any thread while the game carries on, for example to render the
+ * board, send it over the network or save it.
+ */
+public class GridSnapshot {
+
+    private final int cols;
+    private final int rows;
+    private final int chunksX;
+    private final long[] chunks;
+    private final byte[][] colours;
+    private final int[] rowCounts;
+    private final int[] colCounts;
+    private final long hash;
+
+    /**
+     * Create a snapshot over arrays that will no longer be changed
+     */
+    GridSnapshot(int cols, int rows, int chunksX, long[] chunks, byte[][] colours, int[] rowCounts, int[] colCounts,
+                 long hash) {
+        this.cols = cols;
+        this.rows = rows;
+        this.chunksX = chunksX;
+        this.chunks = chunks;
+        this.colours = colours;
+        this.rowCounts = rowCounts;
+        this.colCounts = colCounts;
+        this.hash = hash;
+    }
+
+    /**
+     * Get the value held at the given x and y
+     * @param x column
+     * @param y row
+     * @return the value, or -1 if there is no such cell
+     */
+    public int get(int x, int y) {
+        if(x < 0 || y < 0 || x >= cols || y >= rows) return -1;
+        byte[] chunk = colours[(y / Grid.CHUNK) * chunksX + (x / Grid.CHUNK)];
+        return chunk == null ? 0 : chunk[(x % Grid.CHUNK) + Grid.CHUNK * (y % Grid.CHUNK)];
+    }
+
+    /**
+     * Check whether the cell at the given x and y holds a block
+     * @param x column
+     * @param y row
+     * @return true if the cell is filled
+     */
+    public boolean isOccupied(int x, int y) {
+        return (chunks[(y / Grid.CHUNK) * chunksX + (x / Grid.CHUNK)]
+                & (1L << ((x % Grid.CHUNK) + Grid.CHUNK * (y % Grid.CHUNK)))) != 0;
+    }
+
+    /**
+     * Get the occupancy of one 8x8 chunk, with bit (x + 8 * y) set for each filled cell within it
+     * @param chunkX column of the chunk
+     * @param chunkY row of the chunk
+     * @return occupancy bits
+     */
+    public long getChunk(int chunkX, int chunkY) {
+        return chunks[chunkY * chunksX + chunkX];
+    }
+
+    /**
+     * Get the number of filled cells in a row
+     * @param y row
+     * @return filled cells
+     */
+    public int getRowCount(int y) {
+        return rowCounts[y];
+    }
+
+    /**
+     * Get the number of filled cells in a column
+     * @param x column
+     * @return filled cells
+     */
+    public int getColumnCount(int x) {
+        return colCounts[x];
+    }
+
+    /**
+     * Get the Zobrist hash of which cells were occupied
+     * @return occupancy hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
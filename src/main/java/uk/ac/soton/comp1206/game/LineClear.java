@@ -0,0 +1,105 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A LineClear describes every line emptied by a single placement, as one immutable payload.
+ *
+ * The lines are given as a line mask around the centre of the placed piece, in the same form as
+ * {@link Grid#fullLines}: only the three rows and three columns through the piece can have been completed by it. The
+ * cleared cells are also listed, each once even where a row and a column cross, packed as (x &lt;&lt; 16 | y).
+ */
+public class LineClear {
+
+    private final int x;
+    private final int y;
+    private final int lines;
+    private final int[] cells;
+
+    /**
+     * Create a new line clear
+     * @param x column of the centre of the placed piece
+     * @param y row of the centre of the placed piece
+     * @param lines line mask of the cleared lines
+     * @param cells cleared cells, packed as (x &lt;&lt; 16 | y). The array is kept, not copied.
+     */
+    LineClear(int x, int y, int lines, int[] cells) {
+        this.x = x;
+        this.y = y;
+        this.lines = lines;
+        this.cells = cells;
+    }
+
+    /**
+     * Get the column of the centre of the placed piece, which the line mask is relative to
+     * @return column
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the row of the centre of the placed piece, which the line mask is relative to
+     * @return row
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Get the cleared lines
+     * @return line mask with {@link Grid#ROW_LINES} bits for rows y-1 to y+1 and {@link Grid#COLUMN_LINES} bits for
+     * columns x-1 to x+1
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Get the cleared rows
+     * @return bit i set if row y-1+i was cleared
+     */
+    public int getRows() {
+        return lines & Grid.ROW_LINES;
+    }
+
+    /**
+     * Get the cleared columns
+     * @return bit i set if column x-1+i was cleared
+     */
+    public int getColumns() {
+        return (lines & Grid.COLUMN_LINES) >>> 3;
+    }
+
+    /**
+     * Get the number of lines cleared
+     * @return rows and columns cleared
+     */
+    public int getLineCount() {
+        return Integer.bitCount(lines & (Grid.ROW_LINES | Grid.COLUMN_LINES));
+    }
+
+    /**
+     * Get the number of cells cleared
+     * @return cleared cells, counting each cell once
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * Get the column of a cleared cell
+     * @param cell index of the cell
+     * @return column
+     */
+    public int getCellX(int cell) {
+        return cells[cell] >>> 16;
+    }
+
+    /**
+     * Get the row of a cleared cell
+     * @param cell index of the cell
+     * @return row
+     */
+    public int getCellY(int cell) {
+        return cells[cell] & 0xFFFF;
+    }
+}
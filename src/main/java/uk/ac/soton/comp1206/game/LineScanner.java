@@ -0,0 +1,50 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * A LineScanner finds every full row and column of a board held as occupancy chunks in the layout of {@link Grid}.
+ *
+ * Two scanners are provided: a scalar one that works a whole 8x8 chunk at a time, and one that works several chunks
+ * at a time with the incubating Vector API. The vector scanner is only used when the jdk.incubator.vector module has
+ * been added to the running program, for example with --add-modules jdk.incubator.vector; otherwise the scalar one is.
+ */
+public interface LineScanner {
+
+    /**
+     * Find the full rows of a board
+     * @param chunks occupancy, one long per 8x8 chunk in row-major chunk order
+     * @param chunksX number of chunks across the board
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param full bitset to set bit y of for every full row y, of at least (rows + 63) / 64 longs
+     */
+    public void fullRows(long[] chunks, int chunksX, int cols, int rows, long[] full);
+
+    /**
+     * Find the full columns of a board
+     * @param chunks occupancy, one long per 8x8 chunk in row-major chunk order
+     * @param chunksX number of chunks across the board
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param full bitset to set bit x of for every full column x, of at least (cols + 63) / 64 longs
+     */
+    public void fullColumns(long[] chunks, int chunksX, int cols, int rows, long[] full);
+
+    /**
+     * Create the fastest scanner available to the running program
+     * @return the vector scanner if the Vector API is present, otherwise the scalar scanner
+     */
+    public static LineScanner create() {
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                var scanner = new VectorLineScanner();
+                LogManager.getLogger(LineScanner.class).info("Scanning lines with the Vector API");
+                return scanner;
+            } catch (LinkageError e) {
+                LogManager.getLogger(LineScanner.class).warn("Vector API unusable, scanning lines without it", e);
+            }
+        }
+        return new ScalarLineScanner();
+    }
+}
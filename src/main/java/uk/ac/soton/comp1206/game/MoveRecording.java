@@ -0,0 +1,192 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A MoveRecording holds everything needed to play a game again exactly: the board size, the seed its pieces were
+ * dealt from and every command applied to it, in order.
+ *
+ * Commands are written as variable-length integers into one growing byte array, with the kind of command in the low
+ * three bits and its argument above: the cell for a placement, the number of turns for a rotation. Most commands take
+ * one byte and a placement on a board of up to 4096 cells takes two. Timer expiries are recorded only when they
+ * applied, so a replay needs no clock and runs as fast as the game can be played.
+ *
+ * A recording can be written out as a single line of text with {@link #toString} and read back with {@link #parse}.
+ */
+public class MoveRecording {
+
+    /**
+     * Bits used for the kind of command
+     */
+    private static final int COMMAND_BITS = 3;
+
+    private static final GameCommand[] COMMANDS = GameCommand.values();
+
+    private final int cols;
+    private final int rows;
+    private final long seed;
+
+    /**
+     * The encoded commands
+     */
+    private byte[] bytes;
+    private int length;
+    private int size = 0;
+
+    /**
+     * Create an empty recording
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed the game's pieces are dealt from
+     */
+    MoveRecording(int cols, int rows, long seed) {
+        this(cols, rows, seed, new byte[256], 0);
+    }
+
+    private MoveRecording(int cols, int rows, long seed, byte[] bytes, int length) {
+        this.cols = cols;
+        this.rows = rows;
+        this.seed = seed;
+        this.bytes = bytes;
+        this.length = length;
+    }
+
+    /**
+     * Record a command that was applied
+     * @param command kind of command
+     * @param x first argument of the command
+     * @param y second argument of the command
+     */
+    void add(GameCommand command, int x, int y) {
+        int argument = switch (command) {
+            case PLACE -> y * cols + x;
+            case ROTATE -> Math.floorMod(x, GamePiece.ROTATIONS);
+            default -> 0;
+        };
+        write(argument << COMMAND_BITS | command.ordinal());
+        size++;
+    }
+
+    /**
+     * Play the recorded game again from the start, without a clock
+     * @return the game after every recorded command has been applied
+     */
+    public Game replay() {
+        var game = new Game(cols, rows, seed);
+        game.initialiseGame();
+        if(hasUndo()) game.enableUndo();
+
+        int cursor = 0;
+        while(cursor < length) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[cursor++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+
+            var command = COMMANDS[value & ((1 << COMMAND_BITS) - 1)];
+            int argument = value >>> COMMAND_BITS;
+            if(command == GameCommand.PLACE) {
+                game.submit(command, argument % cols, argument / cols);
+            } else {
+                game.submit(command, argument, 0);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Undo and redo are only recorded when the game had undo enabled, so their presence says it should be enabled
+     */
+    private boolean hasUndo() {
+        int cursor = 0;
+        while(cursor < length) {
+            int command = bytes[cursor] & ((1 << COMMAND_BITS) - 1);
+            if(COMMANDS[command] == GameCommand.UNDO || COMMANDS[command] == GameCommand.REDO) return true;
+            while((bytes[cursor++] & 0x80) != 0);
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of columns of the recorded game
+     * @return columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows of the recorded game
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the seed the recorded game's pieces were dealt from
+     * @return seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of commands recorded
+     * @return commands
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the space taken by the recorded commands
+     * @return encoded bytes
+     */
+    public int byteSize() {
+        return length;
+    }
+
+    /**
+     * Append a non-negative number as a variable-length integer, seven bits per byte
+     */
+    private void write(int value) {
+        if(length + 5 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        while((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    /**
+     * Read a recording written by {@link #toString}
+     * @param text recording as text
+     * @return the recording
+     */
+    public static MoveRecording parse(String text) {
+        var parts = text.trim().split(":", -1);
+        if(parts.length != 4) throw new IllegalArgumentException("Not a recording: " + text);
+        var bytes = Base64.getDecoder().decode(parts[3]);
+        var recording = new MoveRecording(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                Long.parseLong(parts[2]), Arrays.copyOf(bytes, Math.max(bytes.length, 16)), bytes.length);
+        for(int i = 0; i < bytes.length; i++) {
+            if((bytes[i] & 0x80) == 0) recording.size++;
+        }
+        return recording;
+    }
+
+    /**
+     * Write this recording as a single line of text: columns, rows, seed and the commands in base 64
+     * @return recording as text
+     */
+    @Override
+    public String toString() {
+        return cols + ":" + rows + ":" + seed + ":" + Base64.getEncoder().encodeToString(Arrays.copyOf(bytes, length));
+    }
+}
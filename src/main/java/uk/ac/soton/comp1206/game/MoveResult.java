@@ -0,0 +1,81 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A MoveResult is an immutable snapshot of a Game taken once a move, or a batch of commands, has been applied. It
+ * carries everything the UI shows about the game, along with flags saying which parts changed, so the UI can update in
+ * a single pass instead of reacting to each change separately.
+ */
+public class MoveResult {
+
+    private final int score;
+    private final int level;
+    private final int life;
+    private final int multiplier;
+    private final GamePiece currentPiece;
+    private final GamePiece followingPiece;
+    private final boolean stateChanged;
+    private final boolean piecesChanged;
+
+    /**
+     * Create a new move result
+     * @param score score after the move
+     * @param level level after the move
+     * @param life lives remaining after the move
+     * @param multiplier multiplier after the move
+     * @param currentPiece current piece after the move
+     * @param followingPiece following piece after the move
+     * @param stateChanged whether the score, level, lives or multiplier changed
+     * @param piecesChanged whether the current or following piece changed
+     */
+    public MoveResult(int score, int level, int life, int multiplier, GamePiece currentPiece,
+                      GamePiece followingPiece, boolean stateChanged, boolean piecesChanged) {
+        this.score = score;
+        this.level = level;
+        this.life = life;
+        this.multiplier = multiplier;
+        this.currentPiece = currentPiece;
+        this.followingPiece = followingPiece;
+        this.stateChanged = stateChanged;
+        this.piecesChanged = piecesChanged;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLife() {
+        return life;
+    }
+
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    public GamePiece getFollowingPiece() {
+        return followingPiece;
+    }
+
+    /**
+     * Check whether the score, level, lives or multiplier changed in this move
+     * @return true if any of them changed
+     */
+    public boolean isStateChanged() {
+        return stateChanged;
+    }
+
+    /**
+     * Check whether the current or following piece changed in this move, including by rotation or swapping
+     * @return true if either piece changed
+     */
+    public boolean isPiecesChanged() {
+        return piecesChanged;
+    }
+}
@@ -0,0 +1,79 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * An ObservableGame exposes the state of a Game as JavaFX properties so it can be bound to the UI.
+ *
+ * The properties follow the Game through its MoveListener, all together once per move, and are always updated on the
+ * JavaFX Application Thread, even when the Game changes from its timer.
+ */
+public class ObservableGame {
+
+    /**
+     * The game being observed
+     */
+    private final Game game;
+
+    protected final IntegerProperty score = new SimpleIntegerProperty(0);
+    protected final IntegerProperty level = new SimpleIntegerProperty(0);
+    protected final IntegerProperty life = new SimpleIntegerProperty(3);
+    protected final IntegerProperty multiplier = new SimpleIntegerProperty(1);
+
+    /**
+     * Create a new ObservableGame mirroring the given game
+     * @param game game to observe
+     */
+    public ObservableGame(Game game) {
+        this.game = game;
+
+        update(game.getScore(), game.getLevel(), game.getLife(), game.getMultiplier());
+        game.registerMoveListener(this::moveMade);
+    }
+
+    /**
+     * Copy the state of the game after a move into the properties on the JavaFX Application Thread
+     */
+    private void moveMade(MoveResult result) {
+        if(!result.isStateChanged()) return;
+        if(Platform.isFxApplicationThread()) {
+            update(result.getScore(), result.getLevel(), result.getLife(), result.getMultiplier());
+        } else {
+            Platform.runLater(() -> update(result.getScore(), result.getLevel(), result.getLife(),
+                    result.getMultiplier()));
+        }
+    }
+
+    private void update(int score, int level, int life, int multiplier) {
+        this.score.set(score);
+        this.level.set(level);
+        this.life.set(life);
+        this.multiplier.set(multiplier);
+    }
+
+    /**
+     * Get the game being observed
+     * @return game
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    public IntegerProperty scoreProperty(){
+        return score;
+    }
+
+    public IntegerProperty levelProperty(){
+        return level;
+    }
+
+    public IntegerProperty lifeProperty(){
+        return life;
+    }
+
+    public IntegerProperty multiplierProperty(){
+        return multiplier;
+    }
+}
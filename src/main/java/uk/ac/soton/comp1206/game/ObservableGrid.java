@@ -0,0 +1,100 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * An ObservableGrid exposes the cells of a Grid as JavaFX IntegerProperties so they can be bound to the UI.
+ *
+ * The properties follow the Grid through its CellUpdatedListener, and are always updated on the JavaFX Application
+ * Thread, whichever thread changed the Grid.
+ *
+ * Properties are only created for cells that are asked for, so a large board that is only partly shown does not need
+ * an object per cell. Changes to cells nobody has asked for are ignored, and their property starts from the current
+ * value of the cell when it is first asked for.
+ */
+public class ObservableGrid {
+
+    /**
+     * The grid being observed
+     */
+    private final Grid grid;
+
+    /**
+     * The properties of the cells that have been asked for, one array per 8x8 chunk of the grid indexed by the cell's
+     * bit within the chunk
+     */
+    private final SimpleIntegerProperty[][] properties;
+
+    /**
+     * The number of chunks across the grid
+     */
+    private final int chunksX;
+
+    /**
+     * Create a new ObservableGrid mirroring the given grid
+     * @param grid grid to observe
+     */
+    public ObservableGrid(Grid grid) {
+        this.grid = grid;
+
+        chunksX = (grid.getCols() + Grid.CHUNK - 1) / Grid.CHUNK;
+        properties = new SimpleIntegerProperty[chunksX * ((grid.getRows() + Grid.CHUNK - 1) / Grid.CHUNK)][];
+
+        grid.addListener(this::cellUpdated);
+    }
+
+    /**
+     * Copy a changed cell into its property on the JavaFX Application Thread
+     * @param x column
+     * @param y row
+     * @param value the new value
+     */
+    private void cellUpdated(int x, int y, int value) {
+        if(Platform.isFxApplicationThread()) {
+            update(x, y, value);
+        } else {
+            Platform.runLater(() -> update(x, y, value));
+        }
+    }
+
+    private void update(int x, int y, int value) {
+        var chunk = properties[chunkOf(x, y)];
+        if(chunk == null) return;
+        var property = chunk[bitOf(x, y)];
+        if(property != null) property.set(value);
+    }
+
+    private int chunkOf(int x, int y) {
+        return (y / Grid.CHUNK) * chunksX + (x / Grid.CHUNK);
+    }
+
+    private int bitOf(int x, int y) {
+        return (x % Grid.CHUNK) + Grid.CHUNK * (y % Grid.CHUNK);
+    }
+
+    /**
+     * Get the Integer property contained inside the grid at a given row and column index. Can be used for binding.
+     * Should be called on the JavaFX Application Thread.
+     * @param x column
+     * @param y row
+     * @return the IntegerProperty at the given x and y in this grid
+     */
+    public IntegerProperty getGridProperty(int x, int y) {
+        int index = chunkOf(x, y);
+        if(properties[index] == null) properties[index] = new SimpleIntegerProperty[Grid.CHUNK * Grid.CHUNK];
+        var chunk = properties[index];
+        int bit = bitOf(x, y);
+        if(chunk[bit] == null) chunk[bit] = new SimpleIntegerProperty(grid.get(x, y));
+        return chunk[bit];
+    }
+
+    /**
+     * Get the grid being observed
+     * @return grid
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+}
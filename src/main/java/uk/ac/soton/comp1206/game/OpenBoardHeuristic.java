@@ -0,0 +1,159 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The heuristic the PlacementSolver uses unless given another. It favours open boards, avoids single cells boxed in on
+ * every side, and favours filling lines that are already nearly full: each empty cell is worth 5, each hole (an empty
+ * cell whose four neighbours are all filled or off the board) costs 20, and each row and column is worth 10 times the
+ * square of how full it is.
+ *
+ * Scoring a placement only looks at what the placement changes: the cells around the piece, and when lines clear, the
+ * lines next to them. Without a clear this costs the same however large the board is.
+ */
+public class OpenBoardHeuristic implements PlacementHeuristic {
+
+    private static final double EMPTY = 5;
+    private static final double HOLE = -20;
+    private static final double LINES = 10;
+
+    @Override
+    public double evaluate(Grid grid) {
+        int empty = 0;
+        int holes = 0;
+        for(int y = 0; y < grid.getRows(); y++) {
+            for(int x = 0; x < grid.getCols(); x++) {
+                if(grid.isOccupied(x, y)) continue;
+                empty++;
+                if(grid.get(x - 1, y) != 0 && grid.get(x + 1, y) != 0
+                        && grid.get(x, y - 1) != 0 && grid.get(x, y + 1) != 0) {
+                    holes++;
+                }
+            }
+        }
+        double lines = 0;
+        for(int y = 0; y < grid.getRows(); y++) {
+            lines += fill(grid.getRowCount(y), grid.getCols());
+        }
+        for(int x = 0; x < grid.getCols(); x++) {
+            lines += fill(grid.getColumnCount(x), grid.getRows());
+        }
+        return empty * EMPTY + holes * HOLE + lines * LINES;
+    }
+
+    @Override
+    public double evaluatePlacement(Grid grid, double score, GamePiece piece, int x, int y, int lines) {
+        int cols = grid.getCols();
+        int rows = grid.getRows();
+        int clearedRows = Integer.bitCount(lines & Grid.ROW_LINES);
+        int clearedCols = Integer.bitCount(lines & Grid.COLUMN_LINES);
+        var after = new Placed(grid, piece, x, y, lines);
+
+        //The piece fills empty cells, and every cell of a cleared line is emptied
+        int blocks = clearedRows * cols + clearedCols * rows - clearedRows * clearedCols;
+        double change = (blocks - piece.getCellCount()) * EMPTY;
+
+        //A cleared column takes a block from every row, otherwise only the rows of the piece change
+        int fromRow = clearedCols > 0 ? 0 : Math.max(0, y - 1);
+        int toRow = clearedCols > 0 ? rows - 1 : Math.min(rows - 1, y + 1);
+        for(int r = fromRow; r <= toRow; r++) {
+            int row = r - y + 1;
+            int count;
+            if(row >= 0 && row < 3 && (lines & (1 << row)) != 0) {
+                count = 0;
+            } else {
+                count = grid.getRowCount(r) + (row >= 0 && row < 3 ? piece.getRowCells(row) : 0) - clearedCols;
+            }
+            change += (fill(count, cols) - fill(grid.getRowCount(r), cols)) * LINES;
+        }
+        int fromCol = clearedRows > 0 ? 0 : Math.max(0, x - 1);
+        int toCol = clearedRows > 0 ? cols - 1 : Math.min(cols - 1, x + 1);
+        for(int c = fromCol; c <= toCol; c++) {
+            int col = c - x + 1;
+            int count;
+            if(col >= 0 && col < 3 && (lines & (1 << (3 + col))) != 0) {
+                count = 0;
+            } else {
+                count = grid.getColumnCount(c) + (col >= 0 && col < 3 ? piece.getColumnCells(col) : 0) - clearedRows;
+            }
+            change += (fill(count, rows) - fill(grid.getColumnCount(c), rows)) * LINES;
+        }
+
+        //Holes can only change next to a changed cell: around the piece, and along the cleared lines
+        int bandFrom = clearedRows > 0 ? 0 : Math.max(0, x - 2);
+        int bandTo = clearedRows > 0 ? cols - 1 : Math.min(cols - 1, x + 2);
+        for(int r = Math.max(0, y - 2); r <= Math.min(rows - 1, y + 2); r++) {
+            for(int c = bandFrom; c <= bandTo; c++) {
+                change += after.holeChange(c, r) * HOLE;
+            }
+        }
+        if(clearedCols > 0) {
+            for(int r = 0; r < rows; r++) {
+                if(r >= y - 2 && r <= y + 2) continue;
+                for(int c = Math.max(0, x - 2); c <= Math.min(cols - 1, x + 2); c++) {
+                    change += after.holeChange(c, r) * HOLE;
+                }
+            }
+        }
+        return score + change;
+    }
+
+    private static double fill(int count, int size) {
+        double fill = (double) count / size;
+        return fill * fill;
+    }
+
+    /**
+     * A board as it would be after a placement and its line clears, read through the board before it
+     */
+    private static class Placed {
+        private final Grid grid;
+        private final GamePiece piece;
+        private final int x;
+        private final int y;
+        private final int lines;
+
+        Placed(Grid grid, GamePiece piece, int x, int y, int lines) {
+            this.grid = grid;
+            this.piece = piece;
+            this.x = x;
+            this.y = y;
+            this.lines = lines;
+        }
+
+        /**
+         * Check whether a cell is filled before the placement, counting cells off the board as filled
+         */
+        boolean before(int cx, int cy) {
+            if(cx < 0 || cy < 0 || cx >= grid.getCols() || cy >= grid.getRows()) return true;
+            return grid.isOccupied(cx, cy);
+        }
+
+        /**
+         * Check whether a cell is filled after the placement, counting cells off the board as filled
+         */
+        boolean after(int cx, int cy) {
+            if(cx < 0 || cy < 0 || cx >= grid.getCols() || cy >= grid.getRows()) return true;
+            int row = cy - y + 1;
+            int col = cx - x + 1;
+            if(row >= 0 && row < 3 && (lines & (1 << row)) != 0) return false;
+            if(col >= 0 && col < 3 && (lines & (1 << (3 + col))) != 0) return false;
+            int bitX = col - piece.getMinX();
+            int bitY = row - piece.getMinY();
+            if(bitX >= 0 && bitY >= 0 && bitX < piece.getWidth() && bitY < piece.getHeight()
+                    && (piece.getMask() & (1L << (bitX + Grid.CHUNK * bitY))) != 0) {
+                return true;
+            }
+            return grid.isOccupied(cx, cy);
+        }
+
+        /**
+         * Get how the placement changes the number of holes at a cell: 1 if it becomes a hole, -1 if it stops being one
+         */
+        int holeChange(int cx, int cy) {
+            boolean wasHole = !before(cx, cy) && before(cx - 1, cy) && before(cx + 1, cy) && before(cx, cy - 1)
+                    && before(cx, cy + 1);
+            boolean isHole = !after(cx, cy) && after(cx - 1, cy) && after(cx + 1, cy) && after(cx, cy - 1)
+                    && after(cx, cy + 1);
+            return (isHole ? 1 : 0) - (wasHole ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A Placement describes one move: optionally swapping to the following piece, rotating the piece, and placing it
+ * centred on a column and row.
+ */
+public class Placement {
+
+    /**
+     * The column the piece is centred on
+     */
+    private final int x;
+
+    /**
+     * The row the piece is centred on
+     */
+    private final int y;
+
+    /**
+     * Clockwise rotations applied to the piece before placing it
+     */
+    private final int rotation;
+
+    /**
+     * Whether to swap to the following piece first
+     */
+    private final boolean swap;
+
+    /**
+     * Create a new Placement
+     * @param x column the piece is centred on
+     * @param y row the piece is centred on
+     * @param rotation clockwise rotations applied before placing
+     * @param swap whether to swap to the following piece first
+     */
+    public Placement(int x, int y, int rotation, boolean swap) {
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.swap = swap;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public boolean isSwap() {
+        return swap;
+    }
+
+    /**
+     * Return a string representation of this Placement
+     * @return string representation
+     */
+    @Override public String toString() {
+        return "Placement [x = " + x + ", y = " + y + ", rotation = " + rotation + (swap ? ", swap" : "") + "]";
+    }
+}
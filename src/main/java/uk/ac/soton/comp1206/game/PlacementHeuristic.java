@@ -0,0 +1,34 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A PlacementHeuristic scores how good a board is to keep playing on, used by the PlacementSolver to compare the
+ * boards its placements lead to. Higher is better.
+ */
+public interface PlacementHeuristic {
+
+    /**
+     * Score a board
+     * @param grid board to score, which must not be modified
+     * @return score of the board
+     */
+    public double evaluate(Grid grid);
+
+    /**
+     * Score the board a placement leads to: the piece placed, then the lines it completes cleared. The solver scores
+     * every placement of the last piece it looks ahead to this way, so a heuristic that can work out the change from
+     * the cells the placement touches should override this. By default the board is copied and scored whole.
+     * @param grid board before the placement, which must not be modified
+     * @param score score of that board, as from {@link #evaluate}
+     * @param piece piece placed, which must fit
+     * @param x column of the centre of the piece
+     * @param y row of the centre of the piece
+     * @param lines line mask the placement clears, as from {@link Grid#linesIfPlayed}
+     * @return score of the board after the placement
+     */
+    public default double evaluatePlacement(Grid grid, double score, GamePiece piece, int x, int y, int lines) {
+        var after = grid.copy();
+        after.place(piece, x, y);
+        if(lines != 0) after.clearLines(x, y, lines);
+        return evaluate(after);
+    }
+}
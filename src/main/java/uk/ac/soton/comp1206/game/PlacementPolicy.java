@@ -0,0 +1,14 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A PlacementPolicy decides the next move for a game played without a player, for example in a simulation.
+ */
+public interface PlacementPolicy {
+
+    /**
+     * Choose the next placement for the given game
+     * @param game game to play
+     * @return the placement to make, or null to make no move and let the timer run out
+     */
+    public Placement choose(Game game);
+}
@@ -0,0 +1,340 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The PlacementSolver finds the best placement for the current piece of a game, looking several pieces ahead.
+ *
+ * Every legal placement of the current piece, and of the following piece after a swap, is tried. Each is followed by
+ * the piece known to come next, and then by the average over all pieces for the ones that are not known yet. The
+ * points scored along the way plus a PlacementHeuristic score of the final board decide between them.
+ *
+ * The search deepens one piece at a time and stops at a time budget, answering from the deepest search that finished.
+ * A solver made without a budget always searches to its full depth instead, so it makes the same choices on any machine.
+ * The first piece is scored one placement at a time on the calling thread, scoring only what each placement changes
+ * rather than copying the board, so even a search of a very large board that runs out of time part way through has the
+ * best placement found so far to answer with. Deeper searches split the placements at the top across a fork-join pool.
+ *
+ * Boards reached by more than one path, such as two placements made in either order, are only scored once: results
+ * are cached in a TranspositionTable shared by all the search threads, keyed by the Zobrist hash of the board, the
+ * piece to place and the multiplier.
+ */
+public class PlacementSolver implements PlacementPolicy {
+
+    private static final Logger logger = LogManager.getLogger(PlacementSolver.class);
+
+    /**
+     * Favours open boards, avoids single cells boxed in on every side, and favours filling lines that are already
+     * nearly full.
+     */
+    public static final PlacementHeuristic DEFAULT_HEURISTIC = new OpenBoardHeuristic();
+
+    /**
+     * The value of a board where a piece cannot be placed anywhere
+     */
+    private static final double STUCK = -1_000_000;
+
+    /**
+     * Each piece in each of its distinct rotations, so symmetrical pieces are only tried once per shape
+     */
+    private static final GamePiece[][] DISTINCT = new GamePiece[GamePiece.PIECES][];
+
+    static {
+        for(int piece = 0; piece < GamePiece.PIECES; piece++) {
+            var rotations = new ArrayList<GamePiece>();
+            for(int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+                var candidate = GamePiece.createPiece(piece, rotation);
+                boolean seen = false;
+                for(var other : rotations) {
+                    seen |= other.getMask() == candidate.getMask() && other.getMinX() == candidate.getMinX()
+                            && other.getMinY() == candidate.getMinY();
+                }
+                if(!seen) rotations.add(candidate);
+            }
+            DISTINCT[piece] = rotations.toArray(new GamePiece[0]);
+        }
+    }
+
+    /**
+     * Thrown to unwind a search that has run past its deadline
+     */
+    private static class OutOfTime extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutOfTime() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The budget of a solver which always searches to its full depth
+     */
+    private static final long NO_BUDGET = -1;
+
+    private final PlacementHeuristic heuristic;
+    private final int maxDepth;
+    private final long budgetNanos;
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+
+    /**
+     * Create a new PlacementSolver with the default heuristic, looking three pieces ahead within 30 milliseconds
+     */
+    public PlacementSolver() {
+        this(DEFAULT_HEURISTIC, 3, 30);
+    }
+
+    /**
+     * Create a new PlacementSolver
+     * @param heuristic heuristic scoring the boards placements lead to
+     * @param maxDepth the most pieces to look ahead, including the one being placed
+     * @param budgetMillis time after which the search stops deepening
+     */
+    public PlacementSolver(PlacementHeuristic heuristic, int maxDepth, long budgetMillis) {
+        this.heuristic = heuristic;
+        this.maxDepth = maxDepth;
+        this.budgetNanos = budgetMillis * 1_000_000;
+        this.pool = ForkJoinPool.commonPool();
+        this.table = new TranspositionTable(16);
+    }
+
+    /**
+     * Create a new PlacementSolver with no time budget, which always searches to its full depth
+     * @param heuristic heuristic scoring the boards placements lead to
+     * @param maxDepth the pieces to look ahead, including the one being placed
+     */
+    public PlacementSolver(PlacementHeuristic heuristic, int maxDepth) {
+        this.heuristic = heuristic;
+        this.maxDepth = maxDepth;
+        this.budgetNanos = NO_BUDGET;
+        this.pool = ForkJoinPool.commonPool();
+        this.table = new TranspositionTable(16);
+    }
+
+    @Override
+    public Placement choose(Game game) {
+        return solve(game);
+    }
+
+    /**
+     * Find the best placement for the current piece of a game
+     * @param game game to solve, which is only read
+     * @return the best placement, or null if neither piece can be placed anywhere
+     */
+    public Placement solve(Game game) {
+        return solve(game.getGrid().copy(), game.getCurrentPiece(), game.getFollowingPiece(), game.getMultiplier());
+    }
+
+    /**
+     * Find the best placement for the current piece of a position. Can be called on any thread, as long as nothing
+     * changes the grid until it returns, so pass a copy of a game's grid.
+     * @param grid board to place on, which is only read
+     * @param current the piece to place
+     * @param following the piece after it, which can be swapped in
+     * @param multiplier the multiplier of the game
+     * @return the best placement, or null if neither piece can be placed anywhere
+     */
+    public Placement solve(Grid grid, GamePiece current, GamePiece following, int multiplier) {
+        long deadline = budgetNanos == NO_BUDGET ? Long.MAX_VALUE : System.nanoTime() + budgetNanos;
+        table.newSearch();
+
+        var roots = new ArrayList<Root>();
+        double score = heuristic.evaluate(grid);
+        boolean complete = addRoots(roots, grid, score, current, following, false, multiplier, deadline)
+                && addRoots(roots, grid, score, following, current, true, multiplier, deadline);
+        if(roots.isEmpty()) return null;
+
+        Root first = roots.get(0);
+        for(var root : roots) {
+            if(root.value > first.value) first = root;
+        }
+        Placement best = first.placement;
+        if(!complete) {
+            logger.debug("Out of time after scoring {} placements, best {}", roots.size(), best);
+            return best;
+        }
+        logger.debug("Depth 1 best {} scoring {}", best, first.value);
+
+        for(int depth = 2; depth <= maxDepth; depth++) {
+            var values = new double[roots.size()];
+            if(!search(roots, values, grid, multiplier, depth, deadline)) {
+                break;
+            }
+            int bestIndex = 0;
+            for(int i = 1; i < values.length; i++) {
+                if(values[i] > values[bestIndex]) bestIndex = i;
+            }
+            best = roots.get(bestIndex).placement;
+            logger.debug("Depth {} best {} scoring {} ({} cache hits, {} misses)", depth, best, values[bestIndex],
+                    table.getHits(), table.getMisses());
+        }
+        return best;
+    }
+
+    /**
+     * A placement at the top of the search, with the piece it places, the piece known to follow it and its value with
+     * no further lookahead
+     */
+    private static class Root {
+        final Placement placement;
+        final GamePiece piece;
+        final GamePiece next;
+        final double value;
+
+        Root(Placement placement, GamePiece piece, GamePiece next, double value) {
+            this.placement = placement;
+            this.piece = piece;
+            this.next = next;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Add every placement of a piece as a root, scored with no further lookahead. The deadline is checked after each
+     * row, but only once a root has been found, so there is always an answer if the piece can be placed.
+     * @return false if the deadline passed before every placement was added
+     */
+    private boolean addRoots(List<Root> roots, Grid grid, double score, GamePiece piece, GamePiece next, boolean swap,
+                             int multiplier, long deadline) {
+        for(var rotated : DISTINCT[piece.getNumber()]) {
+            int rotation = Math.floorMod(rotated.getRotation() - piece.getRotation(), GamePiece.ROTATIONS);
+            for(int y = 0; y < grid.getRows(); y++) {
+                if(!roots.isEmpty() && System.nanoTime() > deadline) return false;
+                for(int x = 0; x < grid.getCols(); x++) {
+                    if(!grid.fits(rotated, x, y)) continue;
+                    roots.add(new Root(new Placement(x, y, rotation, swap), rotated, next,
+                            last(grid, score, rotated, x, y, multiplier)));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Score every root to the given depth in parallel
+     * @return false if the deadline passed before every root was scored
+     */
+    private boolean search(List<Root> roots, double[] values, Grid grid, int multiplier, int depth, long deadline) {
+        var tasks = new ArrayList<RecursiveAction>();
+        for(int i = 0; i < roots.size(); i++) {
+            int index = i;
+            var root = roots.get(i);
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    values[index] = place(grid, root.piece, root.placement.getX(), root.placement.getY(), root.next,
+                            multiplier, depth - 1, deadline);
+                }
+            });
+        }
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+            return true;
+        } catch (OutOfTime e) {
+            return false;
+        }
+    }
+
+    /**
+     * Score placing a piece and then playing on to the given depth
+     * @param grid board before the placement, which is not modified
+     * @param next the piece known to come next, or null if it is random
+     * @return points scored plus the value of the rest of the search
+     */
+    private double place(Grid grid, GamePiece piece, int x, int y, GamePiece next, int multiplier, int depth,
+                         long deadline) {
+        var child = grid.copy();
+        child.place(piece, x, y);
+        int lines = child.fullLines(piece, x, y);
+        double points = 0;
+        if(lines != 0) {
+            int blocks = child.clearLines(x, y, lines);
+            points = Integer.bitCount(lines) * blocks * 10 * multiplier;
+            multiplier++;
+        } else {
+            multiplier = 1;
+        }
+        return points + value(child, next, multiplier, depth, deadline);
+    }
+
+    /**
+     * Score placing the last piece of the search, working out only what the placement changes on the board
+     * @param grid board before the placement
+     * @param score heuristic score of the board before the placement
+     * @return points scored plus the heuristic score of the board after
+     */
+    private double last(Grid grid, double score, GamePiece piece, int x, int y, int multiplier) {
+        int lines = grid.linesIfPlayed(piece, x, y);
+        int rows = Integer.bitCount(lines & Grid.ROW_LINES);
+        int cols = Integer.bitCount(lines & Grid.COLUMN_LINES);
+        int blocks = rows * grid.getCols() + cols * grid.getRows() - rows * cols;
+        double points = Integer.bitCount(lines) * blocks * 10 * multiplier;
+        return points + heuristic.evaluatePlacement(grid, score, piece, x, y, lines);
+    }
+
+    /**
+     * Score a board with the given number of pieces still to place
+     */
+    private double value(Grid grid, GamePiece next, int multiplier, int depth, long deadline) {
+        if(depth == 0) return heuristic.evaluate(grid);
+        if(System.nanoTime() > deadline) throw new OutOfTime();
+
+        long key = grid.getHash() ^ Zobrist.piece(next == null ? -1 : next.getNumber())
+                ^ Zobrist.multiplier(multiplier);
+        double value = table.get(key, depth);
+        if(!Double.isNaN(value)) return value;
+
+        if(next != null) {
+            value = best(grid, next.getNumber(), multiplier, depth, deadline);
+        } else {
+            //The piece is not known yet, so average over every piece
+            double total = 0;
+            for(int piece = 0; piece < GamePiece.PIECES; piece++) {
+                total += best(grid, piece, multiplier, depth, deadline);
+            }
+            value = total / GamePiece.PIECES;
+        }
+        //The table keeps values as floats, so round now to score the same whether or not the value was cached
+        value = (float) value;
+        table.put(key, depth, value);
+        return value;
+    }
+
+    /**
+     * Get the cache shared by this solver's searches
+     * @return transposition table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Score the best placement of a piece in any rotation
+     */
+    private double best(Grid grid, int piece, int multiplier, int depth, long deadline) {
+        double best = STUCK;
+        double score = depth == 1 ? heuristic.evaluate(grid) : 0;
+        for(var rotated : DISTINCT[piece]) {
+            for(int y = 0; y < grid.getRows(); y++) {
+                for(int x = 0; x < grid.getCols(); x++) {
+                    if(!grid.fits(rotated, x, y)) continue;
+                    best = Math.max(best, depth == 1 ? last(grid, score, rotated, x, y, multiplier)
+                            : place(grid, rotated, x, y, null, multiplier, depth - 1, deadline));
+                }
+            }
+        }
+        return best;
+    }
+}
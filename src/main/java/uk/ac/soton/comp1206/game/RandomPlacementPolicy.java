@@ -0,0 +1,26 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Random;
+
+/**
+ * A PlacementPolicy which picks uniformly between every legal placement, including swapping pieces.
+ */
+public class RandomPlacementPolicy implements PlacementPolicy {
+
+    private final Random random;
+
+    /**
+     * Create a new RandomPlacementPolicy
+     * @param seed seed for choosing placements
+     */
+    public RandomPlacementPolicy(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public Placement choose(Game game) {
+        var placements = game.legalPlacements(true);
+        if(placements.isEmpty()) return null;
+        return placements.get(random.nextInt(placements.size()));
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Scans for full lines one chunk at a time.
+ *
+ * A row of chunks is ANDed together, so a row is full when its byte of the result is all ones; a column of chunks is
+ * ANDed together and then folded in half three times, so a column is full when its bit of the lowest byte is set.
+ * Cells past the edge of the board in the last row or column of chunks count as filled.
+ */
+class ScalarLineScanner implements LineScanner {
+
+    @Override
+    public void fullRows(long[] chunks, int chunksX, int cols, int rows, long[] full) {
+        long edge = ~Grid.LOW_COLUMNS[cols - (chunksX - 1) * Grid.CHUNK];
+        int chunksY = chunks.length / chunksX;
+        for(int chunkY = 0; chunkY < chunksY; chunkY++) {
+            int first = chunkY * chunksX;
+            long all = chunks[first + chunksX - 1] | edge;
+            for(int chunk = first; chunk < first + chunksX - 1 && all != 0; chunk++) {
+                all &= chunks[chunk];
+            }
+            markRows(all, chunkY, rows, full);
+        }
+    }
+
+    @Override
+    public void fullColumns(long[] chunks, int chunksX, int cols, int rows, long[] full) {
+        int chunksY = chunks.length / chunksX;
+        long edge = ~Grid.LOW_ROWS[rows - (chunksY - 1) * Grid.CHUNK];
+        int last = (chunksY - 1) * chunksX;
+        for(int chunkX = 0; chunkX < chunksX; chunkX++) {
+            long all = chunks[last + chunkX] | edge;
+            for(int chunk = chunkX; chunk < last && all != 0; chunk += chunksX) {
+                all &= chunks[chunk];
+            }
+            markColumns(fold(all), chunkX, cols, full);
+        }
+    }
+
+    /**
+     * Set the bits of the full rows in a row of chunks ANDed together
+     */
+    static void markRows(long all, int chunkY, int rows, long[] full) {
+        for(int i = 0; all != 0 && i < Grid.CHUNK; i++, all >>>= Grid.CHUNK) {
+            int y = chunkY * Grid.CHUNK + i;
+            if(y >= rows) return;
+            if((all & 0xFF) == 0xFF) full[y >>> 6] |= 1L << y;
+        }
+    }
+
+    /**
+     * Fold a column of chunks ANDed together down to one byte, with a bit set for each full column
+     */
+    static long fold(long all) {
+        all &= all >>> 32;
+        all &= all >>> 16;
+        all &= all >>> 8;
+        return all & 0xFF;
+    }
+
+    /**
+     * Set the bits of the full columns of a column of chunks, as found by {@link #fold}
+     */
+    static void markColumns(long folded, int chunkX, int cols, long[] full) {
+        folded &= Grid.LOW_COLUMNS[Math.min(Grid.CHUNK, cols - chunkX * Grid.CHUNK)];
+        //Chunks are eight columns wide, so a chunk's columns never straddle two longs of the bitset
+        int x = chunkX * Grid.CHUNK;
+        full[x >>> 6] |= folded << x;
+    }
+}
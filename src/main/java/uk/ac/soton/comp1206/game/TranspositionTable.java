@@ -0,0 +1,103 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size cache of search results keyed by Zobrist hash, shared between search threads without locks.
+ *
+ * Each slot holds the key XORed with the data alongside the data itself, so an entry torn by two threads writing at once
+ * simply fails to match and is treated as a miss. Slots come in pairs: the first keeps the deepest result for its
+ * bucket, the second always takes the newest. Entries from an earlier search can always be replaced.
+ */
+public class TranspositionTable {
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private volatile int generation = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create a new TranspositionTable
+     * @param bucketsLog2 log2 of the number of two-entry buckets
+     */
+    public TranspositionTable(int bucketsLog2) {
+        slots = new AtomicLongArray(4 << bucketsLog2);
+        mask = (1 << bucketsLog2) - 1;
+    }
+
+    /**
+     * Start a new search, letting its results replace any from earlier searches
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Look up the value stored for a position at the given depth
+     * @param key Zobrist hash of the position
+     * @param depth search depth the value must have been found at
+     * @return the value, or NaN if there is none
+     */
+    public double get(long key, int depth) {
+        int bucket = (int) (key ^ (key >>> 32)) & mask;
+        for(int slot = bucket * 4; slot < bucket * 4 + 4; slot += 2) {
+            long data = slots.get(slot + 1);
+            if((slots.get(slot) ^ data) == key && depthOf(data) == depth) {
+                hits.increment();
+                return Float.intBitsToFloat((int) data);
+            }
+        }
+        misses.increment();
+        return Double.NaN;
+    }
+
+    /**
+     * Store the value of a position
+     * @param key Zobrist hash of the position
+     * @param depth search depth the value was found at
+     * @param value value of the position
+     */
+    public void put(long key, int depth, double value) {
+        int bucket = (int) (key ^ (key >>> 32)) & mask;
+        long data = (Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL) | ((long) depth << 32)
+                | ((long) generation << 40);
+
+        //Keep the deeper result in the first slot unless it is stale, otherwise use the second
+        int slot = bucket * 4;
+        long kept = slots.get(slot + 1);
+        if(generationOf(kept) != generation || depthOf(kept) <= depth) {
+            slots.set(slot, key ^ data);
+            slots.set(slot + 1, data);
+        } else {
+            slots.set(slot + 2, key ^ data);
+            slots.set(slot + 3, data);
+        }
+    }
+
+    private static int depthOf(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    private static int generationOf(long data) {
+        return (int) (data >>> 40) & 0xFF;
+    }
+
+    /**
+     * Get the number of lookups that found a value
+     * @return hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that found nothing
+     * @return misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
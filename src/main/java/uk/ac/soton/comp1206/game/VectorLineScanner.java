@@ -0,0 +1,70 @@
+package uk.ac.soton.comp1206.game;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scans for full lines with the Vector API, ANDing as many chunks at once as the processor's vectors hold.
+ *
+ * For rows, each row of chunks is ANDed a vector at a time and then reduced to one long. For columns, the rows of
+ * chunks are ANDed into a vector of running columns, so every column of chunks in the vector is done at once. Only
+ * load this class when the jdk.incubator.vector module is present; see {@link LineScanner#create}.
+ */
+class VectorLineScanner implements LineScanner {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void fullRows(long[] chunks, int chunksX, int cols, int rows, long[] full) {
+        long edge = ~Grid.LOW_COLUMNS[cols - (chunksX - 1) * Grid.CHUNK];
+        int chunksY = chunks.length / chunksX;
+        int bound = SPECIES.loopBound(chunksX - 1);
+        for(int chunkY = 0; chunkY < chunksY; chunkY++) {
+            int first = chunkY * chunksX;
+            long all = chunks[first + chunksX - 1] | edge;
+            if(bound > 0) {
+                var acc = LongVector.fromArray(SPECIES, chunks, first);
+                for(int i = SPECIES.length(); i < bound; i += SPECIES.length()) {
+                    acc = acc.and(LongVector.fromArray(SPECIES, chunks, first + i));
+                }
+                all &= acc.reduceLanes(VectorOperators.AND);
+            }
+            for(int chunk = first + bound; chunk < first + chunksX - 1; chunk++) {
+                all &= chunks[chunk];
+            }
+            ScalarLineScanner.markRows(all, chunkY, rows, full);
+        }
+    }
+
+    @Override
+    public void fullColumns(long[] chunks, int chunksX, int cols, int rows, long[] full) {
+        int chunksY = chunks.length / chunksX;
+        long edge = ~Grid.LOW_ROWS[rows - (chunksY - 1) * Grid.CHUNK];
+        int last = (chunksY - 1) * chunksX;
+        int bound = SPECIES.loopBound(chunksX);
+        var lanes = new long[SPECIES.length()];
+
+        for(int chunkX = 0; chunkX < bound; chunkX += SPECIES.length()) {
+            var acc = LongVector.fromArray(SPECIES, chunks, last + chunkX).or(edge);
+            for(int chunk = chunkX; chunk < last; chunk += chunksX) {
+                acc = acc.and(LongVector.fromArray(SPECIES, chunks, chunk));
+            }
+            acc = acc.and(acc.lanewise(VectorOperators.LSHR, 32));
+            acc = acc.and(acc.lanewise(VectorOperators.LSHR, 16));
+            acc = acc.and(acc.lanewise(VectorOperators.LSHR, 8));
+            acc.intoArray(lanes, 0);
+            for(int lane = 0; lane < lanes.length; lane++) {
+                ScalarLineScanner.markColumns(lanes[lane] & 0xFF, chunkX + lane, cols, full);
+            }
+        }
+
+        for(int chunkX = bound; chunkX < chunksX; chunkX++) {
+            long all = chunks[last + chunkX] | edge;
+            for(int chunk = chunkX; chunk < last; chunk += chunksX) {
+                all &= chunks[chunk];
+            }
+            ScalarLineScanner.markColumns(ScalarLineScanner.fold(all), chunkX, cols, full);
+        }
+    }
+}
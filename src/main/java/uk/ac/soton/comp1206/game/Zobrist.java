@@ -0,0 +1,54 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Zobrist keys for hashing game positions. The hash of a position is the XOR of the keys of its parts, so it can be
+ * updated as single cells change instead of being recalculated.
+ *
+ * Keys are derived from a fixed mix of their index rather than stored in a table, so boards of any size can be hashed
+ * and the same position always hashes the same way.
+ */
+public final class Zobrist {
+
+    private static final long CELL = 0x2545F4914F6CDD1DL;
+    private static final long PIECE = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER = 0xD1B54A32D192ED03L;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Get the key for a cell being occupied
+     * @param index cell index, y * cols + x
+     * @return key
+     */
+    public static long cell(int index) {
+        return mix(CELL + index);
+    }
+
+    /**
+     * Get the key for a piece being the next to place
+     * @param number piece number, or -1 when the piece is not known
+     * @return key
+     */
+    public static long piece(int number) {
+        return mix(PIECE + number);
+    }
+
+    /**
+     * Get the key for the score multiplier
+     * @param multiplier multiplier
+     * @return key
+     */
+    public static long multiplier(int multiplier) {
+        return mix(MULTIPLIER + multiplier);
+    }
+
+    /**
+     * SplitMix64 finaliser
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,6 +2,7 @@ package uk.ac.soton.comp1206.scene;
 
 import javafx.scene.Scene;
 import javafx.scene.paint.Color;
+import uk.ac.soton.comp1206.component.AnimationScheduler;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -15,6 +16,11 @@ public abstract class BaseScene {
     protected GamePane root;
     protected Scene scene;
 
+    /**
+     * Drives every animation of this scene from one timer
+     */
+    protected final AnimationScheduler animations = new AnimationScheduler();
+
     /**
      * Create a new scene, passing in the GameWindow the scene will be displayed in
      * @param gameWindow the game window
@@ -33,6 +39,13 @@ public abstract class BaseScene {
      */
     public abstract void build();
 
+    /**
+     * Release anything the scene holds onto outside itself, such as listeners on the game. Called when the window
+     * switches away from the scene.
+     */
+    public void cleanup() {
+    }
+
     /**
      * Create a new JavaFX scene using the root contained within this scene
      * @return JavaFX scene
@@ -45,6 +58,14 @@ public abstract class BaseScene {
         return scene;
     }
 
+    /**
+     * Get the scheduler driving this scene's animations
+     * @return animation scheduler
+     */
+    public AnimationScheduler getAnimations() {
+        return animations;
+    }
+
     /**
      * Get the JavaFX scene contained inside
      * @return JavaFX scene
@@ -3,6 +3,7 @@ package uk.ac.soton.comp1206.scene;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.geometry.Insets;
@@ -21,12 +22,19 @@ import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.Multimedia;
-import uk.ac.soton.comp1206.component.GameBlock;
+import uk.ac.soton.comp1206.component.AnimationScheduler;
+import uk.ac.soton.comp1206.component.BoardView;
 import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.component.PieceBoard;
-import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.event.MoveListener;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameCommand;
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.LineClear;
+import uk.ac.soton.comp1206.game.MoveResult;
+import uk.ac.soton.comp1206.game.ObservableGame;
+import uk.ac.soton.comp1206.game.Placement;
+import uk.ac.soton.comp1206.game.PlacementSolver;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -35,24 +43,39 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The Single Player challenge scene. Holds the UI for the single player challenge mode in the game.
  */
-public class ChallengeScene extends BaseScene implements NextPieceListener {
+public class ChallengeScene extends BaseScene implements MoveListener {
 
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
 
     protected Game game;
+    protected ObservableGame observableGame;
     protected Multimedia multimedia;
     protected PieceBoard pieceBoard;
     protected PieceBoard followingPieceBoard;
 
     private int aimX = 0;
     private int aimY = 0;
-    protected GameBoard board;
+    protected BoardView board;
+
+    /**
+     * The piece being placed by the last click, for showing where its blocks land
+     */
+    private GamePiece placing;
     protected HBox timerBar;
     protected Rectangle timer;
+    protected Text hint;
+    protected Text preview;
+    private final PlacementSolver solver = new PlacementSolver();
+
+    /**
+     * Set while the solver is looking for a hint in the background
+     */
+    private boolean hinting = false;
     public IntegerProperty bestScore = new SimpleIntegerProperty();
 
 
@@ -87,18 +110,19 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
         var mainPane = new BorderPane();
         challengePane.getChildren().add(mainPane);
 
-        board = new GameBoard(game.getGrid(), (double) gameWindow.getWidth() / 2, (double) gameWindow.getWidth() / 2);
-        board.getStyleClass().add("gameBox");
-        mainPane.setCenter(board);
+        board = createBoard((double) gameWindow.getWidth() / 2);
+        board.getNode().getStyleClass().add("gameBox");
+        mainPane.setCenter(board.getNode());
 
-        board.setOnBlockClick(this::blockClicked);
+        board.setOnCellClick(this::blockClicked);
+        board.setOnCellHover(this::hovered);
 
         var scoreBox = new VBox();
         scoreBox.setAlignment(Pos.CENTER);
         var scoreLabel = new Text("Score");
         var score = new Text("0");
         scoreLabel.getStyleClass().add("heading");
-        score.textProperty().bind(game.scoreProperty().asString());
+        score.textProperty().bind(observableGame.scoreProperty().asString());
         score.getStyleClass().add("score");
         scoreBox.setPadding(new Insets(20,0,0,20));
         scoreBox.getChildren().addAll(new Node[] {scoreLabel, score});
@@ -108,7 +132,7 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
         var level = new Text("0");
         levelBox.setAlignment(Pos.CENTER_LEFT);
         levelLabel.getStyleClass().add("heading");
-        level.textProperty().bind(game.levelProperty().asString());
+        level.textProperty().bind(observableGame.levelProperty().asString());
         level.getStyleClass().add("level");
         levelBox.setPadding(new Insets(20,0,0,0));
         levelBox.getChildren().addAll(levelLabel, level);
@@ -118,7 +142,7 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
         var life = new Text("3");
         lifeBox.setAlignment(Pos.CENTER_RIGHT);
         lifeLabel.getStyleClass().add("heading");
-        life.textProperty().bind(game.lifeProperty().asString());
+        life.textProperty().bind(observableGame.lifeProperty().asString());
         life.getStyleClass().add("lives");
         lifeBox.setPadding(new Insets(20,0,0,0));
         lifeBox.getChildren().addAll(new Node[]{lifeLabel, life});
@@ -140,14 +164,19 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
             BorderPane.setAlignment(BestBox, Pos.CENTER);
             BestBox.setPadding(new Insets(20,0,0,0));
 
-            pieceBoard = new PieceBoard(160,160);
+            pieceBoard = new PieceBoard(160,160, animations);
             BorderPane.setAlignment(pieceBoard, Pos.CENTER_RIGHT);
             var incoming = new Text("Incoming");
             incoming.getStyleClass().add("heading");
-            followingPieceBoard = new PieceBoard(100,100);
+            followingPieceBoard = new PieceBoard(100,100, animations);
             BorderPane.setAlignment(followingPieceBoard, Pos.BOTTOM_RIGHT);
 
-            var miniBoards = new VBox(30, BestBox, incoming, pieceBoard, followingPieceBoard);
+            hint = new Text();
+            hint.getStyleClass().add("heading");
+            preview = new Text();
+            preview.getStyleClass().add("heading");
+
+            var miniBoards = new VBox(30, BestBox, incoming, pieceBoard, followingPieceBoard, hint, preview);
             miniBoards.setAlignment(Pos.CENTER);
             miniBoards.setPadding((new Insets(0,0,0,20)));
             mainPane.setRight(miniBoards);
@@ -160,8 +189,8 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
         timerBar.getChildren().add(timer);
         mainPane.setBottom(timerBar);
 
-        game.setNextPieceListener(this);
-        game.setLineClearedListener(this::clearLine);
+        game.registerMoveListener(this);
+        game.setLineClearedListener(this::clearLines);
 
         multimedia.playMusic("/music/Komiku-04-Skate.mp3");
     }
@@ -231,21 +260,59 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
 
 
     /**
-     * call fadeOut() method via GameBoard to get blocks
-     * @param x get column to clear
-     * @param y get row to clear
+     * Play one sound and one fade out animation for all the lines cleared by a placement
+     * @param clear the lines and cells cleared
      */
-    public void clearLine(int x, int y){
+    public void clearLines(LineClear clear){
+        if(!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> clearLines(clear));
+            return;
+        }
         multimedia.playAudio("/sounds/clear.wav");
-        board.fadeOut(x,y);
+        board.fadeOut(clear);
+    }
+
+    /**
+     * Create the board showing the game's grid
+     * @param size the visual width and height of the board
+     * @return the board
+     */
+    protected BoardView createBoard(double size) {
+        return new GameBoard(game.getGrid(), size, size, animations);
     }
 
     /**
      * Handle when a block is clicked
-     * @param gameBlock the Game Block that was clocked
+     * @param x column of the block that was clicked
+     * @param y row of the block that was clicked
+     */
+    private void blockClicked(int x, int y) {
+        placing = game.getCurrentPiece();
+        game.submit(GameCommand.PLACE, x, y);
+    }
+
+    /**
+     * Play a sound and an effect for the outcome of trying to place the current piece: the blocks placed pop in, or
+     * the aimed block flashes if the piece does not fit
+     * @param x column the piece was centred on
+     * @param y row the piece was centred on
+     * @param placed true if the piece was placed
      */
-    private void blockClicked(GameBlock gameBlock) {
-        game.blockClicked(gameBlock);
+    private void placement(int x, int y, boolean placed) {
+        if(placed) {
+            multimedia.playAudio("/sounds/place.wav");
+            hint.setText("");
+            if(placing == null) return;
+            for(int cell = 0; cell < placing.getCellCount(); cell++) {
+                int cellX = x + placing.getCellX(cell);
+                int cellY = y + placing.getCellY(cell);
+                //Blocks cleared with a line are fading out instead
+                if(game.getGrid().get(cellX, cellY) != 0) board.animate(AnimationScheduler.Effect.POP, cellX, cellY);
+            }
+        } else {
+            multimedia.playAudio("/sounds/fail.wav");
+            board.animate(AnimationScheduler.Effect.FLASH, x, y);
+        }
     }
 
     /**
@@ -256,6 +323,32 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
 
         //Start new game
         game = new Game(5, 5);
+        observableGame = new ObservableGame(game);
+    }
+
+    /**
+     * Start a new game of the same kind, when the player retries from the scores
+     */
+    protected void restart() {
+        gameWindow.startChallenge();
+    }
+
+    /**
+     * Check whether scores from this scene go on the challenge leaderboards
+     * @return true if the score can be submitted
+     */
+    protected boolean isRanked() {
+        return true;
+    }
+
+    /**
+     * Stop the boards following the game's grid and this scene's animations, so a retry leaves nothing behind
+     */
+    @Override
+    public void cleanup() {
+        if(board != null) board.dispose();
+        if(pieceBoard != null) pieceBoard.dispose();
+        if(followingPieceBoard != null) followingPieceBoard.dispose();
     }
 
     /**
@@ -265,9 +358,12 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
     @Override
     public void initialise() {
         logger.info("Initialising Challenge");
-        game.start();
+        game.enableRecording();
+        game.start(gameWindow.getClock());
 
-        game.setOnGameLoop(this::timerAnimation);
+        game.setOnGameLoop(delay -> Platform.runLater(() -> timerAnimation(delay)));
+        game.setOnTimerExpired(() -> multimedia.playAudio("/sounds/fail.wav"));
+        game.setOnPlacement(this::placement);
 
         scene.addEventHandler(KeyEvent.KEY_PRESSED, (key) -> {
             if(key.getCode() == KeyCode.ESCAPE){
@@ -277,30 +373,33 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
                 gameWindow.startMenu();
             }else if(key.getCode() == KeyCode.SPACE || key.getCode() == KeyCode.R){
                 logger.info("swap pieces");
-                game.swapCurrentPiece();
+                game.submit(GameCommand.SWAP, 0, 0);
+                multimedia.playAudio("/sounds/pling.wav");
             }else if((key.getCode() == KeyCode.ENTER || key.getCode() == KeyCode.X)) {
-                game.blockClicked(board.getBlock(aimX,aimY));
+                blockClicked(aimX,aimY);
             }else if(key.getCode() == KeyCode.Q || key.getCode() == KeyCode.Z || key.getCode() == KeyCode.OPEN_BRACKET){
                 rotateCurrentPiece(3);
             }else if(key.getCode() == KeyCode.E || key.getCode() == KeyCode.C || key.getCode() == KeyCode.CLOSE_BRACKET){
                 rotateCurrentPiece(1);
             }else if(key.getCode() == KeyCode.SHIFT){
-                game.nextPiece();
+                game.submit(GameCommand.SKIP, 0, 0);
+            }else if(key.getCode() == KeyCode.H){
+                showHint();
             }else if(key.getCode() == KeyCode.UP || key.getCode() == KeyCode.W){
                 if (aimY > 0) aimY--;
                 logger.info("Up");
-                board.hover(board.getBlock(aimX,aimY));
+                board.hover(aimX,aimY);
             }else if(key.getCode() == KeyCode.DOWN || key.getCode() == KeyCode.S){
                 if (aimY < game.getRows()-1) aimY++;  //should be the length of gameBoard? or 5
-                board.hover(board.getBlock(aimX,aimY));
+                board.hover(aimX,aimY);
                 logger.info("Down");
             }else if(key.getCode() == KeyCode.RIGHT || key.getCode() == KeyCode.D){
                 if (aimX < game.getCols()-1) aimX++;
-                board.hover(board.getBlock(aimX,aimY));
+                board.hover(aimX,aimY);
                 logger.info("Right");
             }else if(key.getCode() == KeyCode.LEFT || key.getCode() == KeyCode.A){
                 if (aimX > 0) aimX--;
-                board.hover(board.getBlock(aimX,aimY));
+                board.hover(aimX,aimY);
                 logger.info("Left");
             }
         });
@@ -311,33 +410,119 @@ public class ChallengeScene extends BaseScene implements NextPieceListener {
             }
         });
 
-        game.EndsGame(() -> {
+        game.EndsGame(() -> Platform.runLater(() -> {
             game.endsTimer();
+            logger.info("Game recording: {}", game.getRecording());
             multimedia.stopMusic();
-            gameWindow.startScores(game);
-        });
+            gameWindow.startScores(game, this::restart, isRanked());
+        }));
+    }
+
+    /**
+     * Ask the solver for the best placement in the background, so a search of a large board never holds up the game
+     */
+    private void showHint() {
+        if(hinting) return;
+        hinting = true;
+
+        //Copy the position here, as the game may move on while the solver runs
+        var grid = game.getGrid().copy();
+        var current = game.getCurrentPiece();
+        var following = game.getFollowingPiece();
+        long version = game.getGrid().getVersion();
+        int multiplier = game.getMultiplier();
+        CompletableFuture.supplyAsync(() -> solver.solve(grid, current, following, multiplier))
+                .whenComplete((placement, error) -> Platform.runLater(() -> {
+                    hinting = false;
+                    if(error != null) {
+                        logger.error("Hint failed", error);
+                    } else if(game.getCurrentPiece() == current && game.getFollowingPiece() == following
+                            && game.getGrid().getVersion() == version) {
+                        showHint(placement);
+                    }
+                }));
+    }
+
+    /**
+     * Aim at the placement the solver found and say whether to swap or rotate first
+     * @param placement best placement, or null if there is none
+     */
+    private void showHint(Placement placement) {
+        if(placement == null) {
+            hint.setText("No moves");
+            return;
+        }
+        logger.info("Hint: " + placement);
+
+        aimX = placement.getX();
+        aimY = placement.getY();
+        board.hover(aimX,aimY);
 
-        game.registerNextPieceListener(this);
+        var text = new StringBuilder();
+        if(placement.isSwap()) text.append("Swap ");
+        if(placement.getRotation() != 0) text.append("Rotate ").append(placement.getRotation());
+        hint.setText(text.toString());
     }
 
     /**
-     * call method to rotate and put rotated piece to the piece board
+     * Ask the game to rotate the current piece; the piece board follows through the next piece listener
      * @param rotation times to rotate
      */
     public void rotateCurrentPiece(int rotation) {
-        game.rotateCurrentPiece(rotation);
+        game.submit(GameCommand.ROTATE, rotation, 0);
         multimedia.playAudio("/sounds/pling.wav");
-        pieceBoard.setPiece(game.getCurrentPiece());
     }
 
     /**
-     * set next pieces to the piece board
-     * @param piece current piece
-     * @param followingPiece following piece that can be swapped
+     * Show on the board where the current piece can be placed
+     */
+    private void updatePlacements() {
+        board.showPlacements(game.getPlacementMask());
+        if(board.getHoveredX() >= 0) preview(board.getHoveredX(), board.getHoveredY());
+    }
+
+    /**
+     * Aim at a hovered block, so the keyboard carries on from where the mouse left off, and preview placing there
+     * @param x column of the hovered block
+     * @param y row of the hovered block
+     */
+    private void hovered(int x, int y) {
+        aimX = x;
+        aimY = y;
+        preview(x, y);
+    }
+
+    /**
+     * Highlight the lines that would clear if the current piece were placed on the hovered block, and the points
+     * it would score
+     * @param x column of the hovered block
+     * @param y row of the hovered block
+     */
+    private void preview(int x, int y) {
+        int lines = game.previewLines(x, y);
+        if(lines <= 0) {
+            board.showLines(0, 0, 0);
+            preview.setText("");
+            return;
+        }
+        board.showLines(x, y, lines);
+        preview.setText("+" + game.previewPoints(lines));
+    }
+
+    /**
+     * Update the piece boards, placements and preview once after each move. Score, level, lives and multiplier follow
+     * through the bindings to the ObservableGame.
+     * @param result the result of the move
      */
     @Override
-    public void nextPiece(GamePiece piece, GamePiece followingPiece) {
-        pieceBoard.setPiece(piece);
-        followingPieceBoard.setPiece(followingPiece);
+    public void moveMade(MoveResult result) {
+        if(!result.isPiecesChanged()) return;
+        if(!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> moveMade(result));
+            return;
+        }
+        pieceBoard.setPiece(result.getCurrentPiece());
+        followingPieceBoard.setPiece(result.getFollowingPiece());
+        updatePlacements();
     }
 }
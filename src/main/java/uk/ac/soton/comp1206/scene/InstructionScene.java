@@ -81,7 +81,7 @@ public class InstructionScene extends BaseScene{
         for (int i = 0; i < GamePiece.PIECES; i++) {
             GamePiece piece = GamePiece.createPiece(i);
 
-            PieceBoard pieceBoard = new PieceBoard(60,60);
+            PieceBoard pieceBoard = new PieceBoard(60,60, animations);
             pieceBoard.setPiece(piece);
             mainPane.setCenter(pieceBoard);
 
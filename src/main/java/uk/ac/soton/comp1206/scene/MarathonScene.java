@@ -0,0 +1,81 @@
+package uk.ac.soton.comp1206.scene;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.BoardView;
+import uk.ac.soton.comp1206.component.CanvasBoard;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.ObservableGame;
+import uk.ac.soton.comp1206.ui.GameWindow;
+
+/**
+ * The Marathon scene is the single player challenge played on a larger square board, of any size up to
+ * {@link Grid#MAX_SIZE}. The board is drawn on a single canvas, so its cost does not grow with a node per cell, and a
+ * board too large for the screen is shown through a viewport that follows the aim and can be dragged and zoomed.
+ */
+public class MarathonScene extends ChallengeScene {
+
+    private static final Logger logger = LogManager.getLogger(MarathonScene.class);
+
+    /**
+     * The size of board used from the menu
+     */
+    public static final int DEFAULT_SIZE = 20;
+
+    /**
+     * The number of cells along each side of the board
+     */
+    private final int size;
+
+    /**
+     * Create a new Marathon scene
+     * @param gameWindow the Game Window
+     * @param size the number of cells along each side of the board
+     */
+    public MarathonScene(GameWindow gameWindow, int size) {
+        super(gameWindow);
+        if(size < 1 || size > Grid.MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between 1 and " + Grid.MAX_SIZE + ": " + size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Setup the game object and model on the larger board
+     */
+    @Override
+    public void setupGame() {
+        logger.info("Starting a new {}x{} marathon", size, size);
+
+        game = new Game(size, size);
+        observableGame = new ObservableGame(game);
+    }
+
+    /**
+     * Start a new marathon on a board of the same size
+     */
+    @Override
+    protected void restart() {
+        gameWindow.startMarathon(size);
+    }
+
+    /**
+     * Scores on a larger board are not comparable with the challenge, so are kept off its leaderboards
+     * @return false
+     */
+    @Override
+    protected boolean isRanked() {
+        return false;
+    }
+
+    /**
+     * Draw the larger board on a single canvas
+     * @param size the visual width and height of the board
+     * @return the board
+     */
+    @Override
+    protected BoardView createBoard(double size) {
+        return new CanvasBoard(game.getGrid(), size, size, animations);
+    }
+}
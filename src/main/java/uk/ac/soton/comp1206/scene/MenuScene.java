@@ -78,6 +78,24 @@ public class MenuScene extends BaseScene {
             gameWindow.startChallenge();
         });
 
+        var marathon = new Text("MARATHON");
+        marathon.getStyleClass().add("menuItem");
+        marathon.setOnMouseDragEntered(e -> marathon.getStyleClass().add("menuItem:hover"));
+        marathon.setOnMouseClicked(e -> {
+            multimedia.stopMusic();
+            multimedia.playAudio("/sounds/lifegain.wav");
+            gameWindow.startMarathon();
+        });
+
+        var practice = new Text("PRACTICE");
+        practice.getStyleClass().add("menuItem");
+        practice.setOnMouseDragEntered(e -> practice.getStyleClass().add("menuItem:hover"));
+        practice.setOnMouseClicked(e -> {
+            multimedia.stopMusic();
+            multimedia.playAudio("/sounds/lifegain.wav");
+            gameWindow.startPractice();
+        });
+
         var multi = new Text("MULTIPLAYER");
         multi.getStyleClass().add("menuItem");
         multi.setOnMouseDragEntered(e -> multi.getStyleClass().add("menuItem:hover"));
@@ -99,7 +117,7 @@ public class MenuScene extends BaseScene {
         exit.setOnMouseDragEntered(e -> exit.getStyleClass().add("menuItem:hover"));
         exit.setOnMouseClicked(e -> Platform.exit());
 
-        var buttonsBox = new VBox(25, play, multi, howTo, exit);
+        var buttonsBox = new VBox(25, play, marathon, practice, multi, howTo, exit);
         buttonsBox.setAlignment(Pos.CENTER);
 
         StackPane.setAlignment(buttonsBox, Pos.BOTTOM_CENTER);
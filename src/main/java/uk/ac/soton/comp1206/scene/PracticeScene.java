@@ -0,0 +1,74 @@
+package uk.ac.soton.comp1206.scene;
+
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameCommand;
+import uk.ac.soton.comp1206.game.ObservableGame;
+import uk.ac.soton.comp1206.ui.GameWindow;
+
+/**
+ * The Practice scene is the single player challenge with moves that can be taken back: U undoes the last move and Y
+ * redoes it. Any number of moves can be undone, back to the start of the game.
+ */
+public class PracticeScene extends ChallengeScene {
+
+    private static final Logger logger = LogManager.getLogger(PracticeScene.class);
+
+    /**
+     * Create a new Practice scene
+     * @param gameWindow the Game Window
+     */
+    public PracticeScene(GameWindow gameWindow) {
+        super(gameWindow);
+    }
+
+    /**
+     * Setup the game object and model, recording moves so they can be undone
+     */
+    @Override
+    public void setupGame() {
+        logger.info("Starting a new practice");
+
+        game = new Game(5, 5);
+        game.enableUndo();
+        observableGame = new ObservableGame(game);
+    }
+
+    /**
+     * Start a new practice
+     */
+    @Override
+    protected void restart() {
+        gameWindow.startPractice();
+    }
+
+    /**
+     * Practice moves can be undone, so its scores are kept off the leaderboards
+     * @return false
+     */
+    @Override
+    protected boolean isRanked() {
+        return false;
+    }
+
+    /**
+     * Initialise the scene as a challenge, and add the keys for undo and redo
+     */
+    @Override
+    public void initialise() {
+        super.initialise();
+
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, (key) -> {
+            if(key.getCode() == KeyCode.U){
+                logger.info("Undo");
+                game.submit(GameCommand.UNDO, 0, 0);
+            }else if(key.getCode() == KeyCode.Y){
+                logger.info("Redo");
+                game.submit(GameCommand.REDO, 0, 0);
+            }
+        });
+    }
+}
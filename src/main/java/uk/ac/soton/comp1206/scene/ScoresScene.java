@@ -41,6 +41,8 @@ import java.util.Scanner;
 public class ScoresScene extends BaseScene implements CommunicationsListener{
 
     Game game;
+    Runnable restart;
+    boolean ranked;
     Multimedia multimedia;
     Communicator communicator;
     ArrayList<VBox> displayLocal = new ArrayList<>();
@@ -71,9 +73,11 @@ public class ScoresScene extends BaseScene implements CommunicationsListener{
 
     private static final Logger logger = LogManager.getLogger(ScoresScene.class);
 
-    public ScoresScene(GameWindow gameWindow, Game game) {
+    public ScoresScene(GameWindow gameWindow, Game game, Runnable restart, boolean ranked) {
         super(gameWindow);
         this.game = game;
+        this.restart = restart;
+        this.ranked = ranked;
         this.newScore = game.getScore();
 
         multimedia = new Multimedia();
@@ -107,8 +111,9 @@ public class ScoresScene extends BaseScene implements CommunicationsListener{
         beatOnline = false;
         beatLocal = false;
 
-        if (rankingInOnline < newScore) beatOnline = true;
-        if (rankingInLocal < newScore) beatLocal = true;
+        //Scores from other modes are not comparable with the challenge, so are never submitted
+        if (ranked && rankingInOnline < newScore) beatOnline = true;
+        if (ranked && rankingInLocal < newScore) beatLocal = true;
 
         if((beatOnline|| beatLocal) && !showRanking) {
             //text field
@@ -342,6 +347,11 @@ public class ScoresScene extends BaseScene implements CommunicationsListener{
         BorderPane.setMargin(heading, new Insets(20, 0, 0, 0));
         text.getStyleClass().add("bigtitle");
         heading.getChildren().add(text);
+        if(!ranked) {
+            var unranked = new Text("Scores from this mode are not ranked");
+            unranked.getStyleClass().add("heading");
+            heading.getChildren().add(unranked);
+        }
         scorePane.getChildren().add(heading);
 
         //rankings
@@ -460,7 +470,7 @@ public class ScoresScene extends BaseScene implements CommunicationsListener{
     public void retry(){
         multimedia.stopMusic();
         multimedia.playAudio("/sounds/lifegain.wav");
-        gameWindow.startChallenge();
+        restart.run();
     }
 
     /**
@@ -10,6 +10,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameClock;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.scene.*;
 
@@ -34,6 +35,11 @@ public class GameWindow {
 
     final Communicator communicator;
 
+    /**
+     * The clock timing every game in this window, delivering timer expiries on the JavaFX Application Thread
+     */
+    private final GameClock clock = new GameClock(Platform::runLater);
+
     /**
      * Create a new GameWindow attached to the given stage with the specified width and height
      * @param stage stage
@@ -74,6 +80,14 @@ public class GameWindow {
         Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-ExtraBold.ttf"),32);
     }
 
+    /**
+     * Get the clock games in this window are timed with
+     * @return game clock
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
     /**
      * Display the main menu
      */
@@ -86,6 +100,22 @@ public class GameWindow {
      */
     public void startChallenge() { loadScene(new ChallengeScene(this)); }
 
+    /**
+     * Display the single player challenge on a large board
+     */
+    public void startMarathon() { startMarathon(MarathonScene.DEFAULT_SIZE); }
+
+    /**
+     * Display the single player challenge on a large board of the given size
+     * @param size the number of cells along each side of the board
+     */
+    public void startMarathon(int size) { loadScene(new MarathonScene(this, size)); }
+
+    /**
+     * Display the single player challenge with undo and redo
+     */
+    public void startPractice() { loadScene(new PracticeScene(this)); }
+
     /**
      * Display the instruction scene
      */
@@ -93,9 +123,13 @@ public class GameWindow {
 
     /**
      * Display score scene
-     * @param game
+     * @param game the game that has ended
+     * @param retry starts a new game of the same kind
+     * @param ranked whether the score can go on the leaderboards
      */
-    public void startScores(Game game) {loadScene((new ScoresScene(this, game)));}
+    public void startScores(Game game, Runnable retry, boolean ranked) {
+        loadScene((new ScoresScene(this, game, retry, ranked)));
+    }
 
     /**
      * Display scene to start multiplayer game
@@ -145,6 +179,10 @@ public class GameWindow {
     public void cleanup() {
         logger.info("Clearing up previous scene");
         communicator.clearListeners();
+        if(currentScene != null) {
+            currentScene.getAnimations().finishAll();
+            currentScene.cleanup();
+        }
     }
 
     /**
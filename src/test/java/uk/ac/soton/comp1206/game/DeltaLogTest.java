@@ -0,0 +1,153 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaLogTest {
+
+    /**
+     * Describe everything undo and redo put back: the board, the figures and both pieces
+     */
+    private static String describe(Game game) {
+        var text = new StringBuilder();
+        for(int y = 0; y < game.getRows(); y++) {
+            for(int x = 0; x < game.getCols(); x++) {
+                text.append(game.getGrid().get(x, y)).append(' ');
+            }
+        }
+        text.append("score ").append(game.getScore()).append(" level ").append(game.getLevel())
+                .append(" life ").append(game.getLife()).append(" multiplier ").append(game.getMultiplier())
+                .append(" lines ").append(game.getLinesCleared()).append(" pieces ").append(game.getPiecesPlayed())
+                .append(" current ").append(game.getCurrentPiece().getNumber()).append('/')
+                .append(game.getCurrentPiece().getRotation())
+                .append(" following ").append(game.getFollowingPiece().getNumber()).append('/')
+                .append(game.getFollowingPiece().getRotation());
+        return text.toString();
+    }
+
+    private static Game newGame(long seed) {
+        var game = new Game(5, 5, seed);
+        game.enableUndo();
+        game.initialiseGame();
+        return game;
+    }
+
+    @Test
+    void undoThenRedoRestoresEveryPlacement() {
+        var game = newGame(11);
+        var random = new Random(11);
+        var states = new ArrayList<String>();
+        states.add(describe(game));
+
+        while(!game.isOver() && game.getPiecesPlayed() < 60) {
+            var legal = game.legalPlacements(true);
+            if(legal.isEmpty()) break;
+            var placement = legal.get(random.nextInt(legal.size()));
+            if(placement.isSwap()) game.submit(GameCommand.SWAP, 0, 0);
+            if(placement.getRotation() != 0) game.submit(GameCommand.ROTATE, placement.getRotation(), 0);
+            game.submit(GameCommand.PLACE, placement.getX(), placement.getY());
+            states.add(describe(game));
+        }
+        assertEquals(states.size() - 1, game.getHistory().size());
+        assertTrue(game.getLinesCleared() > 0);
+
+        for(int i = states.size() - 1; i > 0; i--) {
+            game.submit(GameCommand.UNDO, 0, 0);
+            //Undo goes back to before the placement, with the pieces as they were once rotated and swapped
+            var board = describe(game);
+            assertEquals(states.get(i - 1).substring(0, states.get(i - 1).indexOf("current")),
+                    board.substring(0, board.indexOf("current")), "undo to " + (i - 1));
+        }
+        assertFalse(game.getHistory().canUndo());
+
+        for(int i = 1; i < states.size(); i++) {
+            game.submit(GameCommand.REDO, 0, 0);
+            assertEquals(states.get(i), describe(game), "redo to " + i);
+        }
+        assertFalse(game.getHistory().canRedo());
+    }
+
+    @Test
+    void rotatingSwappingAndTheTimerAreNotRecorded() {
+        var game = newGame(5);
+        game.submit(GameCommand.ROTATE, 1, 0);
+        game.submit(GameCommand.SWAP, 0, 0);
+        game.submit(GameCommand.SKIP, 0, 0);
+        game.submit(GameCommand.TIMER, 0, 0);
+
+        assertEquals(2, game.getLife());
+        assertEquals(0, game.getHistory().size());
+        assertFalse(game.getHistory().canUndo());
+    }
+
+    @Test
+    void undoAfterTheTimerPutsBackTheFiguresFromBeforeThePlacement() {
+        var game = newGame(5);
+        var random = new Random(5);
+        int score;
+        int multiplier;
+        int life;
+        //Play until a placement clears a line, remembering the figures from just before it
+        do {
+            score = game.getScore();
+            multiplier = game.getMultiplier();
+            life = game.getLife();
+            int lines = game.getLinesCleared();
+            var legal = game.legalPlacements(false);
+            var placement = legal.get(random.nextInt(legal.size()));
+            if(placement.getRotation() != 0) game.submit(GameCommand.ROTATE, placement.getRotation(), 0);
+            game.submit(GameCommand.PLACE, placement.getX(), placement.getY());
+            if(game.getLinesCleared() > lines) break;
+        } while(!game.isOver());
+        assertFalse(game.isOver());
+        int clearedScore = game.getScore();
+        int clearedMultiplier = game.getMultiplier();
+        int clearedLife = game.getLife();
+        assertTrue(clearedMultiplier > 1);
+
+        game.submit(GameCommand.TIMER, 0, 0);
+        assertEquals(1, game.getMultiplier());
+        assertEquals(clearedLife - 1, game.getLife());
+
+        game.submit(GameCommand.UNDO, 0, 0);
+        assertEquals(score, game.getScore());
+        assertEquals(multiplier, game.getMultiplier());
+        assertEquals(life, game.getLife());
+        assertFalse(game.isOver());
+
+        game.submit(GameCommand.REDO, 0, 0);
+        assertEquals(clearedScore, game.getScore());
+        assertEquals(clearedMultiplier, game.getMultiplier());
+        assertEquals(clearedLife, game.getLife());
+    }
+
+    @Test
+    void undoTakesBackTheEndOfTheGame() {
+        var game = newGame(9);
+        var random = new Random(9);
+        //Place at random until the board fills up and the game ends
+        while(!game.isOver()) {
+            var legal = game.legalPlacements(true);
+            if(legal.isEmpty()) {
+                game.submit(GameCommand.TIMER, 0, 0);
+                continue;
+            }
+            var placement = legal.get(random.nextInt(legal.size()));
+            if(placement.isSwap()) game.submit(GameCommand.SWAP, 0, 0);
+            if(placement.getRotation() != 0) game.submit(GameCommand.ROTATE, placement.getRotation(), 0);
+            game.submit(GameCommand.PLACE, placement.getX(), placement.getY());
+        }
+
+        assertTrue(game.getHistory().canUndo());
+        while(game.getHistory().canUndo()) {
+            game.submit(GameCommand.UNDO, 0, 0);
+            assertFalse(game.isOver());
+        }
+    }
+}
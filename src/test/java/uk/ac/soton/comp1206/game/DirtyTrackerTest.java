@@ -0,0 +1,51 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirtyTrackerTest {
+
+    @Test
+    void everyTrackerSeesEveryChange() {
+        var grid = new Grid(20, 20);
+        var firstRequests = new AtomicInteger();
+        var secondRequests = new AtomicInteger();
+        var first = grid.trackDirty(firstRequests::incrementAndGet);
+        var second = grid.trackDirty(secondRequests::incrementAndGet);
+
+        grid.set(3, 4, 1);
+        grid.set(17, 12, 2);
+        var firstMask = new long[9];
+        assertTrue(first.drain(firstMask));
+
+        //Draining one tracker leaves the other's changes alone
+        var secondMask = new long[9];
+        assertTrue(second.drain(secondMask));
+        assertEquals(firstMask[0], secondMask[0]);
+        assertEquals(firstMask[7], secondMask[7]);
+        assertTrue(grid.inMask(firstMask, 3, 4) && grid.inMask(firstMask, 17, 12));
+        assertTrue(grid.inMask(secondMask, 3, 4) && grid.inMask(secondMask, 17, 12));
+        assertEquals(1, firstRequests.get());
+        assertEquals(1, secondRequests.get());
+
+        grid.set(0, 0, 3);
+        assertEquals(2, firstRequests.get());
+        assertEquals(2, secondRequests.get());
+    }
+
+    @Test
+    void stoppedTrackerIsNoLongerMarked() {
+        var grid = new Grid(5, 5);
+        var tracker = grid.trackDirty(null);
+        grid.stopTracking(tracker);
+
+        grid.set(1, 1, 1);
+
+        assertFalse(tracker.drain(new long[1]));
+    }
+}
@@ -0,0 +1,84 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameStateTest {
+
+    private static void assertMatches(Game game, GameState state, String where) {
+        assertEquals(game.getScore(), state.score(), where);
+        assertEquals(game.getLevel(), state.level(), where);
+        assertEquals(game.getLife(), state.life(), where);
+        assertEquals(game.getMultiplier(), state.multiplier(), where);
+        assertEquals(game.getLinesCleared(), state.linesCleared(), where);
+        assertEquals(game.getPiecesPlayed(), state.piecesPlayed(), where);
+        assertEquals(game.isOver(), state.over(), where);
+        assertEquals(game.getCurrentPiece().getNumber(), state.currentPiece().getNumber(), where);
+        assertEquals(game.getCurrentPiece().getRotation(), state.currentPiece().getRotation(), where);
+        assertEquals(game.getFollowingPiece().getNumber(), state.followingPiece().getNumber(), where);
+        assertEquals(game.getFollowingPiece().getRotation(), state.followingPiece().getRotation(), where);
+        for(int y = 0; y < game.getRows(); y++) {
+            for(int x = 0; x < game.getCols(); x++) {
+                assertEquals(game.getGrid().isOccupied(x, y), state.isOccupied(x, y), where + " at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void stepPlaysTheSameAsGame() {
+        int moves = 0;
+        for(long seed = 0; seed < 100; seed++) {
+            int size = 4 + (int) (seed % 7);
+            var game = new Game(size, size, seed);
+            game.initialiseGame();
+            var state = GameState.initial(size, size, seed);
+            var random = new Random(seed);
+            assertMatches(game, state, "seed " + seed + " start");
+
+            while(!game.isOver() && game.getPiecesPlayed() < 300) {
+                //Mostly legal placements, with some that do not fit and some timer expiries
+                var legal = game.legalPlacements(true);
+                Placement action;
+                int roll = random.nextInt(20);
+                if(roll == 0 || legal.isEmpty()) {
+                    action = null;
+                } else if(roll == 1) {
+                    action = new Placement(random.nextInt(size), random.nextInt(size),
+                            random.nextInt(GamePiece.ROTATIONS), random.nextBoolean());
+                } else {
+                    action = legal.get(random.nextInt(legal.size()));
+                }
+
+                if(action == null) {
+                    game.gameLoop();
+                } else {
+                    game.play(action);
+                }
+                state = GameState.step(state, action);
+                moves++;
+                assertMatches(game, state, "seed " + seed + " move " + moves + " " + action);
+            }
+        }
+        assertTrue(moves > 1000);
+    }
+
+    @Test
+    void occupancyCannotBeChangedFromOutside() {
+        var state = GameState.initial(5, 5, 1);
+
+        var board = new long[] {0};
+        var made = new GameState(5, 5, board, state.currentPiece(), state.followingPiece(), 0, 0, 3, 1, 0, 0, false,
+                state.random());
+        board[0] = -1;
+        assertFalse(made.isOccupied(0, 0));
+
+        made.occupancy()[0] = -1;
+        assertFalse(made.isOccupied(0, 0));
+        assertEquals(made, GameState.initial(5, 5, 1));
+    }
+}
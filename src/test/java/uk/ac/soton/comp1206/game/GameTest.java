@@ -0,0 +1,73 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameTest {
+
+    private static void fill(Grid grid) {
+        for(int y = 0; y < grid.getRows(); y++) {
+            for(int x = 0; x < grid.getCols(); x++) {
+                grid.set(x, y, 1);
+            }
+        }
+    }
+
+    @Test
+    void deadBoardLosesEveryLifeThenEndsOnce() {
+        var game = new Game(5, 5, 7);
+        game.initialiseGame();
+        var ended = new AtomicInteger();
+        var expired = new AtomicInteger();
+        game.EndsGame(ended::incrementAndGet);
+        game.setOnTimerExpired(expired::incrementAndGet);
+        fill(game.getGrid());
+        assertFalse(game.hasMoves());
+
+        game.submit(GameCommand.TIMER, 0, 0);
+
+        assertTrue(game.isOver());
+        assertEquals(0, game.getLife());
+        assertEquals(1, ended.get());
+        //One expiry for each of the three lives, and one more for the game over
+        assertEquals(4, expired.get());
+    }
+
+    @Test
+    void noPieceIsDealtOnceTheGameIsOver() {
+        var game = new Game(5, 5, 7);
+        game.initialiseGame();
+        var ended = new AtomicInteger();
+        game.EndsGame(ended::incrementAndGet);
+        fill(game.getGrid());
+        game.submit(GameCommand.TIMER, 0, 0);
+        var current = game.getCurrentPiece();
+        var following = game.getFollowingPiece();
+
+        game.submit(GameCommand.TIMER, 0, 0);
+        game.gameLoop();
+
+        assertSame(current, game.getCurrentPiece());
+        assertSame(following, game.getFollowingPiece());
+        assertEquals(1, ended.get());
+    }
+
+    @Test
+    void timerOnAPlayableBoardLosesOneLife() {
+        var game = new Game(5, 5, 7);
+        game.initialiseGame();
+        var following = game.getFollowingPiece();
+
+        game.submit(GameCommand.TIMER, 0, 0);
+
+        assertEquals(2, game.getLife());
+        assertFalse(game.isOver());
+        assertSame(following, game.getCurrentPiece());
+    }
+}
@@ -0,0 +1,156 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class GridSnapshotTest {
+
+    /**
+     * Everything a snapshot shows of a grid: the colour of every cell, then the row and column counts and the hash
+     */
+    private static long[] describe(Grid grid) {
+        var values = new long[grid.getCols() * grid.getRows() + grid.getRows() + grid.getCols() + 1];
+        int i = 0;
+        for(int y = 0; y < grid.getRows(); y++) {
+            for(int x = 0; x < grid.getCols(); x++) {
+                values[i++] = grid.isOccupied(x, y) ? grid.get(x, y) : 0;
+            }
+        }
+        for(int y = 0; y < grid.getRows(); y++) values[i++] = grid.getRowCount(y);
+        for(int x = 0; x < grid.getCols(); x++) values[i++] = grid.getColumnCount(x);
+        values[i] = grid.getHash();
+        return values;
+    }
+
+    private static long[] describe(GridSnapshot snapshot) {
+        var values = new long[snapshot.getCols() * snapshot.getRows() + snapshot.getRows() + snapshot.getCols() + 1];
+        int i = 0;
+        for(int y = 0; y < snapshot.getRows(); y++) {
+            for(int x = 0; x < snapshot.getCols(); x++) {
+                values[i++] = snapshot.isOccupied(x, y) ? snapshot.get(x, y) : 0;
+            }
+        }
+        for(int y = 0; y < snapshot.getRows(); y++) values[i++] = snapshot.getRowCount(y);
+        for(int x = 0; x < snapshot.getCols(); x++) values[i++] = snapshot.getColumnCount(x);
+        values[i] = snapshot.getHash();
+        return values;
+    }
+
+    private static Grid randomGrid(Random random, int size) {
+        var grid = new Grid(size, size);
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                if(random.nextDouble() < 0.4) grid.set(x, y, 1 + random.nextInt(15));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Fill a row but one cell, then place a single block piece in the gap and clear the row
+     */
+    private static void placeAndClearRow(Grid grid, int y) {
+        var dot = GamePiece.createPiece(3);
+        int gap = -1;
+        for(int x = 0; x < grid.getCols(); x++) {
+            if(!grid.isOccupied(x, y) && gap < 0) {
+                gap = x;
+            } else if(!grid.isOccupied(x, y)) {
+                grid.set(x, y, 2);
+            }
+        }
+        if(gap < 0) {
+            gap = 0;
+            grid.set(gap, y, 0);
+        }
+        assertEquals(1, dot.getCellCount());
+        int x = gap - dot.getCellX(0);
+        int centreY = y - dot.getCellY(0);
+        grid.playPiece(dot, x, centreY);
+        int lines = grid.fullLines(dot, x, centreY);
+        assertNotEquals(0, lines);
+        grid.clearLines(x, centreY, lines);
+    }
+
+    @Test
+    void snapshotKeepsTheBoardAsItWasTaken() {
+        var random = new Random(1);
+        for(int size : new int[] {5, 8, 20}) {
+            var grid = randomGrid(random, size);
+            var expected = describe(grid);
+            var snapshot = grid.snapshot();
+            assertArrayEquals(expected, describe(snapshot));
+
+            //Recolour a filled cell, empty cells until a chunk is empty, place a piece and clear a line
+            for(int y = 0; y < size; y++) {
+                for(int x = 0; x < size; x++) {
+                    if(grid.isOccupied(x, y)) {
+                        grid.set(x, y, 1 + grid.get(x, y) % 15);
+                        break;
+                    }
+                }
+            }
+            for(int y = 0; y < Math.min(size, Grid.CHUNK); y++) {
+                for(int x = 0; x < Math.min(size, Grid.CHUNK); x++) {
+                    grid.set(x, y, 0);
+                }
+            }
+            placeAndClearRow(grid, size - 1);
+
+            assertArrayEquals(expected, describe(snapshot), "size " + size);
+            assertNotEquals(Arrays.toString(expected), Arrays.toString(describe(grid)));
+        }
+    }
+
+    @Test
+    void snapshotsOfTheSameGridStayIndependent() {
+        var random = new Random(2);
+        var grid = randomGrid(random, 20);
+        var firstExpected = describe(grid);
+        var first = grid.snapshot();
+
+        grid.set(3, 3, 7);
+        grid.set(12, 15, 9);
+        placeAndClearRow(grid, 10);
+        var secondExpected = describe(grid);
+        var second = grid.snapshot();
+        //A snapshot straight after another, with no change between, shares the same arrays
+        var third = grid.snapshot();
+
+        grid.set(3, 3, 0);
+        grid.set(12, 15, 4);
+        placeAndClearRow(grid, 19);
+        var finalExpected = describe(grid);
+
+        assertArrayEquals(firstExpected, describe(first));
+        assertArrayEquals(secondExpected, describe(second));
+        assertArrayEquals(secondExpected, describe(third));
+        assertArrayEquals(finalExpected, describe(grid.snapshot()));
+    }
+
+    @Test
+    void copyIsUnaffectedBySnapshotsOfTheOriginal() {
+        var grid = randomGrid(new Random(3), 12);
+        var snapshot = grid.snapshot();
+        var copy = grid.copy();
+        var expected = describe(grid);
+
+        placeAndClearRow(grid, 4);
+        copy.set(0, 0, 5);
+
+        assertArrayEquals(expected, describe(snapshot));
+        assertEquals(5, copy.get(0, 0));
+        for(int y = 0; y < grid.getRows(); y++) {
+            for(int x = 0; x < grid.getCols(); x++) {
+                if(x == 0 && y == 0) continue;
+                assertEquals(snapshot.get(x, y), copy.get(x, y), "cell " + x + "," + y);
+            }
+        }
+    }
+}
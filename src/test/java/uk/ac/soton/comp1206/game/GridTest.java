@@ -0,0 +1,43 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GridTest {
+
+    @Test
+    void placementMaskMatchesCheckingEveryCell() {
+        var random = new Random(1);
+        for(int board = 0; board < 60; board++) {
+            int cols = 1 + random.nextInt(30);
+            int rows = 1 + random.nextInt(30);
+            double density = random.nextDouble() * 0.6;
+            var grid = new Grid(cols, rows);
+            for(int y = 0; y < rows; y++) {
+                for(int x = 0; x < cols; x++) {
+                    if(random.nextDouble() < density) grid.set(x, y, 1);
+                }
+            }
+
+            for(int piece = 0; piece < GamePiece.PIECES; piece++) {
+                for(int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+                    var rotated = GamePiece.createPiece(piece, rotation);
+                    var mask = grid.placementMask(rotated);
+                    boolean any = false;
+                    for(int y = 0; y < rows; y++) {
+                        for(int x = 0; x < cols; x++) {
+                            boolean fits = grid.fits(rotated, x, y);
+                            any |= fits;
+                            assertEquals(fits, grid.inMask(mask, x, y),
+                                    rotated + " at " + x + "," + y + " on " + cols + "x" + rows);
+                        }
+                    }
+                    assertEquals(any, grid.hasPlacement(rotated), rotated + " on " + cols + "x" + rows);
+                }
+            }
+        }
+    }
+}
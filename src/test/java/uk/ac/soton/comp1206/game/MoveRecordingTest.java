@@ -0,0 +1,105 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveRecordingTest {
+
+    /**
+     * Play every kind of command at random: legal and illegal placements, rotations, swaps, skips, timer expiries, and
+     * undo and redo if the game has undo enabled
+     */
+    private static void play(Game game, Random random, int commands) {
+        for(int i = 0; i < commands && !game.isOver(); i++) {
+            int roll = random.nextInt(20);
+            if(roll == 0) {
+                game.submit(GameCommand.TIMER, 0, 0);
+            } else if(roll == 1) {
+                game.submit(GameCommand.SKIP, 0, 0);
+            } else if(roll == 2) {
+                game.submit(GameCommand.SWAP, 0, 0);
+            } else if(roll == 3) {
+                game.submit(GameCommand.ROTATE, random.nextInt(7) - 3, 0);
+            } else if(roll == 4) {
+                game.submit(GameCommand.PLACE, random.nextInt(game.getCols()), random.nextInt(game.getRows()));
+            } else if(roll == 5 && game.getHistory() != null) {
+                game.submit(random.nextBoolean() ? GameCommand.UNDO : GameCommand.REDO, 0, 0);
+            } else {
+                var legal = game.legalPlacements(false);
+                if(legal.isEmpty()) continue;
+                var placement = legal.get(random.nextInt(legal.size()));
+                if(placement.getRotation() != 0) game.submit(GameCommand.ROTATE, placement.getRotation(), 0);
+                game.submit(GameCommand.PLACE, placement.getX(), placement.getY());
+            }
+        }
+    }
+
+    private static void assertSameGame(Game expected, Game actual) {
+        assertEquals(expected.getScore(), actual.getScore());
+        assertEquals(expected.getLevel(), actual.getLevel());
+        assertEquals(expected.getLife(), actual.getLife());
+        assertEquals(expected.getMultiplier(), actual.getMultiplier());
+        assertEquals(expected.getLinesCleared(), actual.getLinesCleared());
+        assertEquals(expected.getPiecesPlayed(), actual.getPiecesPlayed());
+        assertEquals(expected.isOver(), actual.isOver());
+        assertEquals(expected.getCurrentPiece().getNumber(), actual.getCurrentPiece().getNumber());
+        assertEquals(expected.getCurrentPiece().getRotation(), actual.getCurrentPiece().getRotation());
+        assertEquals(expected.getFollowingPiece().getNumber(), actual.getFollowingPiece().getNumber());
+        for(int y = 0; y < expected.getRows(); y++) {
+            for(int x = 0; x < expected.getCols(); x++) {
+                assertEquals(expected.getGrid().get(x, y), actual.getGrid().get(x, y), "cell " + x + "," + y);
+            }
+        }
+    }
+
+    private static Game recordedGame(int size, long seed, boolean undo) {
+        var game = new Game(size, size, seed);
+        game.enableRecording();
+        if(undo) game.enableUndo();
+        game.initialiseGame();
+        return game;
+    }
+
+    @Test
+    void replayingTheTextOfARecordingReproducesTheGame() {
+        for(long seed = 0; seed < 20; seed++) {
+            var game = recordedGame(5, seed, seed % 2 == 0);
+            play(game, new Random(seed), 400);
+
+            var recording = MoveRecording.parse(game.getRecording().toString());
+            assertEquals(game.getRecording().size(), recording.size());
+            assertSameGame(game, recording.replay());
+        }
+    }
+
+    @Test
+    void placementsPastOneByteRoundTripOnALargeBoard() {
+        var game = recordedGame(100, 3, false);
+        var random = new Random(3);
+        play(game, random, 600);
+        //Place some pieces beyond column and row 64, whose cells take three bytes to record
+        int far = 0;
+        for(int i = 0; i < 5; i++) {
+            for(var placement : game.legalPlacements(false)) {
+                if(placement.getX() >= 64 && placement.getY() >= 64 && placement.getRotation() == 0) {
+                    int played = game.getPiecesPlayed();
+                    game.submit(GameCommand.PLACE, placement.getX(), placement.getY());
+                    if(game.getPiecesPlayed() > played) far++;
+                    break;
+                }
+            }
+        }
+        assertEquals(5, far);
+
+        var text = game.getRecording().toString();
+        var recording = MoveRecording.parse(text);
+        assertEquals(100, recording.getCols());
+        assertEquals(3, recording.getSeed());
+        assertEquals(game.getRecording().byteSize(), recording.byteSize());
+        assertSameGame(game, recording.replay());
+    }
+}
@@ -0,0 +1,84 @@
+package uk.ac.soton.comp1206.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlacementSolverTest {
+
+    /**
+     * Fill a board at random, leaving some rows and columns nearly full so placements clear lines
+     */
+    private static Grid randomGrid(Random random, int size, double density) {
+        var grid = new Grid(size, size);
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                boolean nearlyFull = y % 4 == 1 || x % 5 == 2;
+                if(random.nextDouble() < (nearlyFull ? 0.95 : density)) grid.set(x, y, 1 + random.nextInt(15));
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    void placementScoreMatchesScoringTheWholeBoard() {
+        var heuristic = new OpenBoardHeuristic();
+        var random = new Random(1);
+        int checked = 0;
+        for(int board = 0; board < 40; board++) {
+            var grid = randomGrid(random, 5 + random.nextInt(12), random.nextDouble() * 0.7);
+            double score = heuristic.evaluate(grid);
+            for(int piece = 0; piece < GamePiece.PIECES; piece++) {
+                var rotated = GamePiece.createPiece(piece, random.nextInt(GamePiece.ROTATIONS));
+                for(int y = 0; y < grid.getRows(); y++) {
+                    for(int x = 0; x < grid.getCols(); x++) {
+                        if(!grid.fits(rotated, x, y)) continue;
+                        int lines = grid.linesIfPlayed(rotated, x, y);
+
+                        var after = grid.copy();
+                        after.place(rotated, x, y);
+                        if(lines != 0) after.clearLines(x, y, lines);
+                        assertEquals(heuristic.evaluate(after),
+                                heuristic.evaluatePlacement(grid, score, rotated, x, y, lines), 1e-6,
+                                rotated + " at " + x + "," + y);
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertTrue(checked > 1000);
+    }
+
+    @Test
+    void largeBoardAnswersWithinTheBudget() {
+        var grid = randomGrid(new Random(2), 256, 0.3);
+        var solver = new PlacementSolver(PlacementSolver.DEFAULT_HEURISTIC, 3, 16);
+        //Warm up before timing
+        solver.solve(grid, GamePiece.createPiece(0), GamePiece.createPiece(2), 1);
+
+        long started = System.nanoTime();
+        var placement = solver.solve(grid, GamePiece.createPiece(9), GamePiece.createPiece(4), 1);
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        assertNotNull(placement);
+        assertTrue(millis < 250, "took " + millis + "ms");
+    }
+
+    @Test
+    void fixedDepthSolverChoosesTheSameWhetherReusedOrNot() {
+        var reused = new PlacementSolver(PlacementSolver.DEFAULT_HEURISTIC, 2);
+        var random = new Random(3);
+        for(int board = 0; board < 10; board++) {
+            var grid = randomGrid(random, 6, 0.4);
+            var current = GamePiece.createPiece(random.nextInt(GamePiece.PIECES));
+            var following = GamePiece.createPiece(random.nextInt(GamePiece.PIECES));
+            var fresh = new PlacementSolver(PlacementSolver.DEFAULT_HEURISTIC, 2);
+            assertEquals(String.valueOf(fresh.solve(grid, current, following, 1)),
+                    String.valueOf(reused.solve(grid, current, following, 1)));
+        }
+    }
+}